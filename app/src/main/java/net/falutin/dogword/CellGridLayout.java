@@ -12,7 +12,9 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 
 /**
- * Lays out grid cells dynamically and supports grid path selection
+ * Lays out grid cells dynamically and supports grid path selection. As the path grows, it is
+ * stepped through the dictionary one cell at a time, so the selection is always known to be a
+ * word, a prefix of one, or neither, and is shown as such.
  * Created by sokolov on 2/28/2015.
  */
 public class CellGridLayout extends RelativeLayout {
@@ -20,8 +22,13 @@ public class CellGridLayout extends RelativeLayout {
     private int cellSize = 0;
     private int dim;
     private CellGrid grid;
+    // the letter of each cell, in lower case, as the dictionary spells it
+    private byte[] tiles;
+    private LetterTree dictionary;
     private CanvasView canvasView;
     private byte[] cellPath;
+    // the dictionary state of each prefix of the path; see LetterTree.step()
+    private long[] pathStates;
     private byte pathLength;
     private int cellTextColor, gestureColor, alreadyColor;
     private boolean enabled;
@@ -48,6 +55,7 @@ public class CellGridLayout extends RelativeLayout {
         for (int i = 0; i < cellPath.length; i++) {
             cellPath[i] = -1;
         }
+        pathStates = new long[size];
         pathLength = 0;
     }
 
@@ -124,9 +132,11 @@ public class CellGridLayout extends RelativeLayout {
     private void initPath(int cellIndex) {
         cellPath[0] = (byte) cellIndex;
         cellPath[1] = -1;
+        pathStates[0] = stepCell(LetterTree.ROOT, cellIndex);
         pathLength = 1;
         //highlightSelection(SelectionKind.NONE);
         selectCell(cellIndex);
+        showPathState();
     }
 
     private void addPath(int cellIndex) {
@@ -142,9 +152,39 @@ public class CellGridLayout extends RelativeLayout {
                 return;
             }
         }
+        pathStates[pathLength] = stepCell(pathStates[pathLength - 1], cellIndex);
         cellPath[pathLength++] = (byte) cellIndex;
         cellPath[pathLength] = -1;
         selectCell(cellIndex);
+        showPathState();
+    }
+
+    /**
+     * Extends a prefix by the letter in a cell; a Q stands for QU.
+     */
+    private long stepCell(long state, int cellIndex) {
+        if (dictionary == null || state == 0) {
+            return 0;
+        }
+        return dictionary.stepTile(state, tiles[cellIndex]);
+    }
+
+    /**
+     * Colors the letters of the path by whether they spell a word, a prefix, or neither.
+     */
+    private void showPathState() {
+        long state = getSelectionState();
+        int color;
+        if ((state & LetterTree.IS_WORD) != 0) {
+            color = gestureColor;
+        } else if (state != 0) {
+            color = cellTextColor;
+        } else {
+            color = alreadyColor;
+        }
+        for (int i = 0; i < pathLength; i++) {
+            getCell(cellPath[i]).setTextColor(color);
+        }
     }
 
     private boolean invalidateIfValidSelection(int cellIndex) {
@@ -167,12 +207,26 @@ public class CellGridLayout extends RelativeLayout {
         return true;
     }
 
-    public String getSelectedWord () {
-        StringBuilder buf = new StringBuilder();
+    /**
+     * @return the dictionary state of the selected path, as returned by LetterTree.step(): zero if
+     * it spells no prefix of a word, and otherwise with the IS_WORD bit set if it spells a word,
+     * whose ordinal is LetterTree.ordinal() of the state.
+     */
+    public long getSelectionState () {
+        return pathLength == 0 ? 0 : pathStates[pathLength - 1];
+    }
+
+    /**
+     * @return the number of letters in the selected path, counting a Q as two
+     */
+    public int getSelectionLength () {
+        int length = pathLength;
         for (int i = 0; i < pathLength; i++) {
-            buf.append(getCell(cellPath[i]).getText());
+            if (tiles[cellPath[i]] == LetterTree.QU) {
+                ++length;
+            }
         }
-        return buf.toString();
+        return length;
     }
 
     public void clearPath() {
@@ -242,10 +296,25 @@ public class CellGridLayout extends RelativeLayout {
         return grid;
     }
 
+    /**
+     * @param dictionary the words that selections spell, such as the words that can be spelled on
+     *                   the grid; see LetterTree.restrictTo()
+     */
+    public void setDictionary(LetterTree dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Shows the grid's letters. This leaves selection enabled or not, as it was: the owner enables
+     * it once a dictionary for the grid has been set.
+     */
     @SuppressLint("SetTextI18n")
     public void setGrid(CellGrid grid) {
         this.grid = grid;
-        enabled = true;
+        tiles = new byte[grid.width() * grid.height()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = (byte) Character.toLowerCase(grid.get(i));
+        }
         if (cellSize == 0) {
             // onLayout not yet called
             return;
@@ -0,0 +1,147 @@
+package net.falutin.dogword;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the dictionary for the whole process. It is read once, on a background thread, starting
+ * as soon as the application is created, and the one immutable LetterTree is shared by every
+ * activity, so recreating an activity (eg on rotation) never reloads it.
+ */
+class DictionaryHolder {
+
+    /**
+     * Notified, on the main thread, once the dictionary has been loaded, or has failed to load.
+     */
+    interface Listener {
+        void onDictionaryLoaded(LetterTree dictionary);
+
+        /**
+         * The listener is forgotten; asking again with whenLoaded() retries the load.
+         */
+        void onDictionaryFailed(IOException e);
+    }
+
+    private static final List<Listener> listeners = new ArrayList<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static LetterTree dictionary;
+    private static boolean loading;
+
+    private DictionaryHolder() {
+    }
+
+    /**
+     * Starts loading the dictionary in the background, unless it is already loading or loaded.
+     */
+    static synchronized void load(Context context) {
+        if (loading || dictionary != null) {
+            return;
+        }
+        loading = true;
+        final Context appContext = context.getApplicationContext();
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final LetterTree tree;
+                try {
+                    tree = read(appContext);
+                } catch (final IOException e) {
+                    Log.e(DogWord.TAG, "failed to read dictionary", e);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            failed(e);
+                        }
+                    });
+                    return;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        loaded(tree);
+                    }
+                });
+            }
+        }, "dictionary-loader");
+        loader.setPriority(Thread.NORM_PRIORITY + 1);
+        loader.start();
+    }
+
+    /**
+     * @return the dictionary, or null if it has not been loaded yet
+     */
+    static synchronized LetterTree get() {
+        return dictionary;
+    }
+
+    /**
+     * Calls the listener with the dictionary: immediately if it is already loaded, and otherwise
+     * once loading completes. Must be called on the main thread.
+     */
+    static void whenLoaded(Context context, Listener listener) {
+        LetterTree tree;
+        synchronized (DictionaryHolder.class) {
+            tree = dictionary;
+            if (tree == null) {
+                listeners.add(listener);
+                load(context);
+                return;
+            }
+        }
+        listener.onDictionaryLoaded(tree);
+    }
+
+    /**
+     * Forgets a listener that has not yet been called, eg when its activity is destroyed.
+     */
+    static synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static LetterTree read(Context context) throws IOException {
+        // Our dictionary is WORDS trimmed down to words that occurred at least 500 times
+        // in the Google Books corpus in 2008, plus more obscure words, proper names,
+        // abbreviations removed by other means.
+        long start = System.currentTimeMillis();
+        DataInputStream in = new DataInputStream(context.getResources().openRawResource(R.raw.words));
+        try {
+            LetterTree tree = LetterTree.read(in);
+            Log.d(DogWord.TAG, "loaded " + tree + " in " + (System.currentTimeMillis() - start) + "ms");
+            return tree;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void loaded(LetterTree tree) {
+        Listener[] waiting;
+        synchronized (DictionaryHolder.class) {
+            dictionary = tree;
+            loading = false;
+            waiting = listeners.toArray(new Listener[listeners.size()]);
+            listeners.clear();
+        }
+        for (Listener listener : waiting) {
+            listener.onDictionaryLoaded(tree);
+        }
+    }
+
+    private static void failed(IOException e) {
+        Listener[] waiting;
+        synchronized (DictionaryHolder.class) {
+            loading = false;
+            waiting = listeners.toArray(new Listener[listeners.size()]);
+            listeners.clear();
+        }
+        for (Listener listener : waiting) {
+            listener.onDictionaryFailed(e);
+        }
+    }
+}
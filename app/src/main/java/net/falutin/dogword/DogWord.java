@@ -21,10 +21,11 @@ import android.widget.TextView;
 import com.splunk.mint.Mint;
 import com.splunk.mint.MintLogLevel;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Word search game. Run your finger over the letters and find all the dictionary.
@@ -35,7 +36,6 @@ import java.util.Locale;
  *     score over 50, 80, 100, 150
  *     get a six, seven- or eight+ letter word
  * TODO: More even letter distribution?
- *   guarantee at least one seven-letter word?
  */
 public class DogWord extends ActionBarActivity {
 
@@ -54,6 +54,16 @@ public class DogWord extends ActionBarActivity {
 
     private int initTimerMillis = 3 * 60 * 1000;
     private static final int MSEC_PER_POINT = 2000;
+    // how often to look for a new board when the pool has run dry
+    private static final int BOARD_POLL_MILLIS = 100;
+
+    // solves boards off the main thread, one at a time
+    private static final Executor SOLVER = Executors.newSingleThreadExecutor();
+    // new boards, solved and checked in advance; created once the dictionary is loaded
+    private static BoardPool boardPool;
+    // the board of the game in progress, kept for the whole process so that recreating the
+    // activity (eg on rotation) restores the game without solving the board again
+    private static BoardPool.Board currentBoard;
 
     private CellGridLayout gridLayout;
     private TextView displayArea;
@@ -62,10 +72,32 @@ public class DogWord extends ActionBarActivity {
 
     private final Handler handler = new Handler();
     private final Runnable timerCB = createTimerCallback();
+    private final Runnable boardPoller = createBoardPoller();
+    // set once the activity is destroyed, so that results posted by other threads are dropped
+    private boolean destroyed;
 
     private LetterTree dictionary;
     private GridWordFinder wordFinder;
+    // finds and scores words on the current board, using only the words spelled by its letters
+    private GridWordFinder boardFinder;
+    // for each word of the board's dictionary, its position in the solution; see BoardPool.Board
+    private int[] solutionIndexes;
+    // null until the dictionary is loaded and the board has been solved
     private GridWords gridWords;
+    // the state to restore once the dictionary is loaded and the board is solved
+    private Bundle pendingState;
+    private final DictionaryHolder.Listener dictionaryListener = new DictionaryHolder.Listener() {
+        @Override
+        public void onDictionaryLoaded(LetterTree tree) {
+            DogWord.this.onDictionaryLoaded(tree);
+        }
+
+        @Override
+        public void onDictionaryFailed(IOException e) {
+            // the grid stays empty and disabled; recreating the activity tries again
+            progressArea.setText(R.string.dictionary_failed);
+        }
+    };
     private int score;
     private boolean isTimed;
     private boolean gameOver;
@@ -87,25 +119,36 @@ public class DogWord extends ActionBarActivity {
         progressArea = (TextView) findViewById(R.id.progress);
         gridLayout.setCanvasView((CanvasView) findViewById(R.id.canvas));
 
-        try {
-            // load the dictionary
-            // Our dictionary is WORDS trimmed down to words that occurred at least 500 times
-            // in the Google Books corpus in 2008, plus more obscure words, proper names,
-            // abbreviations removed by other means.
-            if (dictionary == null) {
-                dictionary = LetterTree.read(new DataInputStream(getResources().openRawResource(R.raw.words)));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("failed to read dictionary");
-        }
+        // the dictionary is shared by the whole process, and is usually loaded (or loading)
+        // already; until it is, the grid stays empty and disabled
+        pendingState = savedInstanceState;
+        progressArea.setText(R.string.loading);
+        DictionaryHolder.whenLoaded(this, dictionaryListener);
+    }
+
+    private void onDictionaryLoaded(LetterTree tree) {
+        dictionary = tree;
         wordFinder = new GridWordFinder(dictionary);
-        if (savedInstanceState != null) {
-            onRestoreGame(savedInstanceState);
+        if (boardPool == null) {
+            boardPool = new BoardPool(wordFinder, 4, 4, BoardPool.Criteria.DEFAULT, 4);
+            boardPool.start();
+        }
+        if (pendingState != null) {
+            onRestoreGame(pendingState);
         } else {
             onNewGame();
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        DictionaryHolder.removeListener(dictionaryListener);
+        // drop any solution that has not been delivered yet, along with the timer
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -120,6 +163,10 @@ public class DogWord extends ActionBarActivity {
 
     private void resume() {
         Log.d(TAG, "resume " + elapsedMillis);
+        if (gridWords == null) {
+            // the game starts once the dictionary is loaded and the board is solved
+            return;
+        }
         if (elapsedMillis > 0) {
             resetStartTime();
             elapsedMillis = -1;
@@ -149,15 +196,83 @@ public class DogWord extends ActionBarActivity {
     }
 
     private void onNewGame () {
-        CellGrid grid = new CellGrid(4, 4);
-        grid.randomize();
-        gridLayout.setGrid(grid);
         gridLayout.clearSelection();
         displayArea.setText("");
         if (popup != null) {
             dismissPopup();
         }
-        gridWords = new GridWords(wordFinder, grid);
+        BoardPool.Board board = boardPool.poll();
+        if (board != null) {
+            gridLayout.setGrid(board.grid);
+            startGame(board);
+            return;
+        }
+        // the pool has run dry: check again shortly, rather than tying up a thread waiting for
+        // it. Meanwhile the old board's words no longer count.
+        gridWords = null;
+        stopTimer();
+        gridLayout.setEnabled(false);
+        handler.removeCallbacks(boardPoller);
+        handler.postDelayed(boardPoller, BOARD_POLL_MILLIS);
+    }
+
+    /**
+     * Starts a game with the next board once the pool has one. The board is only taken on the
+     * main thread, by a live activity, so none is lost when the activity is destroyed while
+     * waiting; onDestroy() drops the callback.
+     */
+    private Runnable createBoardPoller() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                BoardPool.Board board = boardPool.poll();
+                if (board == null) {
+                    handler.postDelayed(this, BOARD_POLL_MILLIS);
+                    return;
+                }
+                gridLayout.setGrid(board.grid);
+                startGame(board);
+            }
+        };
+    }
+
+    /**
+     * Solves a restored grid and extracts the words its letters spell, on the solver thread, then
+     * restores the given state with them on the main thread. This is only needed when the process
+     * has been restarted since the game began, so the solution is not saved with the game.
+     */
+    private void solve(final CellGrid grid, final GameSnapshot game) {
+        final GridWordFinder finder = wordFinder;
+        SOLVER.execute(new Runnable() {
+            @Override
+            public void run() {
+                Solution solution = finder.solve(grid);
+                final BoardPool.Board board = new BoardPool.Board(grid, solution, finder.getTree().restrictTo(grid));
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSolved(board, game);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onSolved(BoardPool.Board board, GameSnapshot game) {
+        if (destroyed || board.grid != gridLayout.getGrid() || isFinishing()) {
+            // another board replaced this one while it was being solved
+            return;
+        }
+        restoreGame(board, game);
+    }
+
+    private void startGame (BoardPool.Board board) {
+        currentBoard = board;
+        gridWords = new GridWords(board.solution);
+        boardFinder = new GridWordFinder(board.dictionary);
+        solutionIndexes = board.solutionIndexes;
+        gridLayout.setDictionary(board.dictionary);
+        gridLayout.setEnabled(true);
         score = 0;
         startTime = System.currentTimeMillis();
         elapsedMillis = -1;
@@ -175,17 +290,53 @@ public class DogWord extends ActionBarActivity {
     }
 
     private void onRestoreGame(Bundle state) {
-        CellGrid grid = new CellGrid(4, 4);
-        grid.setCells(state.getString("grid"));
+        GameSnapshot game = null;
+        byte[] saved = state.getByteArray("game");
+        if (saved != null) {
+            try {
+                game = GameSnapshot.fromBytes(saved);
+            } catch (IOException e) {
+                Log.w(TAG, "invalid saved game", e);
+            }
+        }
+        if (game == null) {
+            pendingState = null;
+            onNewGame();
+            return;
+        }
+        CellGrid grid = game.getGrid();
+        // usually the activity is being recreated in the same process, which has the board solved
+        BoardPool.Board board = currentBoard;
+        if (board != null && isSameGrid(board.grid, grid)) {
+            gridLayout.setGrid(board.grid);
+            restoreGame(board, game);
+            return;
+        }
         gridLayout.setGrid(grid);
-        gridWords = new GridWords(wordFinder, grid);
-        String[] wf = state.getStringArray("wordsFound");
-        if (wf != null) {
-            gridWords.addFoundWords(wf);
+        // the grid stays disabled until the board is solved
+        gridLayout.setEnabled(false);
+        solve(grid, game);
+    }
+
+    private static boolean isSameGrid(CellGrid a, CellGrid b) {
+        return a.width() == b.width() && a.height() == b.height() && a.toString().equals(b.toString());
+    }
+
+    private void restoreGame(BoardPool.Board board, GameSnapshot game) {
+        pendingState = null;
+        currentBoard = board;
+        Solution solution = board.solution;
+        gridWords = new GridWords(solution);
+        boardFinder = new GridWordFinder(board.dictionary);
+        solutionIndexes = board.solutionIndexes;
+        gridLayout.setDictionary(board.dictionary);
+        gridLayout.setEnabled(!game.gameOver);
+        if (game.wordCount == solution.getWordCount()) {
+            gridWords.setFoundBits(game.found);
         }
-        gameOver = state.getBoolean("gameOver");
-        score = state.getInt("score");
-        elapsedMillis = state.getInt("elapsedSeconds") * 1000;
+        gameOver = game.gameOver;
+        score = game.score;
+        elapsedMillis = game.elapsedSeconds * 1000;
         updateWordList();
         resetStartTime();
         startTimer();
@@ -215,11 +366,18 @@ public class DogWord extends ActionBarActivity {
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
-        outState.putString("grid", gridLayout.getGrid().toString());
-        outState.putBoolean("gameOver", gameOver);
-        outState.putStringArray("wordsFound", gridWords.getWordsFound());
-        outState.putInt("score", score);
-        outState.putInt("elapsedSeconds", (int) (elapsedMillis() / 1000));
+        if (gridWords == null) {
+            // still loading or solving: keep whatever state we were going to restore
+            if (pendingState != null) {
+                outState.putAll(pendingState);
+            }
+            super.onSaveInstanceState(outState);
+            return;
+        }
+        Solution solution = gridWords.getSolution();
+        GameSnapshot game = new GameSnapshot(gridLayout.getGrid(), solution.getWordCount(),
+                gridWords.getFoundBits(), score, (int) (elapsedMillis() / 1000), gameOver);
+        outState.putByteArray("game", game.toBytes());
         super.onSaveInstanceState(outState);
     }
 
@@ -237,14 +395,18 @@ public class DogWord extends ActionBarActivity {
         // as you specify a parent activity in AndroidManifest.xml.
         switch (item.getItemId()) {
             case R.id.new_game:
-                onNewGame();
+                if (gridWords != null) {
+                    onNewGame();
+                }
                 return true;
             case R.id.pause:
                 // hides this activity as if the user pressed the back button
                 onBackPressed();
                 return true;
             case R.id.game_over:
-                onGameOver();
+                if (gridWords != null) {
+                    onGameOver();
+                }
                 return true;
             case R.id.action_settings:
                 startActivity(new Intent().setClass(getApplicationContext(), SettingsActivity.class));
@@ -297,19 +459,26 @@ public class DogWord extends ActionBarActivity {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (gameOver) {
+        if (gameOver || gridWords == null) {
             return false;
         }
         if (event.getActionMasked() == MotionEvent.ACTION_UP) {
-            String word = gridLayout.getSelectedWord();
-            if (word.length() >= 3 && dictionary.contains(word.toLowerCase())) {
-                if (gridWords.isFound(word)) {
+            // the layout has followed the path through the dictionary as it was drawn
+            long state = gridLayout.getSelectionState();
+            int length = gridLayout.getSelectionLength();
+            if (length >= 3 && (state & LetterTree.IS_WORD) != 0) {
+                int ordinal = LetterTree.ordinal(state);
+                int index = solutionIndexes[ordinal];
+                if (index < 0) {
+                    // a word of the board's letters, but not on a path of the board
+                    gridLayout.highlightSelection(CellGridLayout.SelectionKind.NONE);
+                } else if (gridWords.isFound(index)) {
                     gridLayout.highlightSelection(CellGridLayout.SelectionKind.ALREADY);
                 } else {
-                    gridWords.addFound(word);
+                    gridWords.addFound(index);
                     updateWordList();
                     gridLayout.highlightSelection(CellGridLayout.SelectionKind.FOUND);
-                    score += fibonacci(word.length() - 2);
+                    score += boardFinder.score(ordinal, length);
                     updateProgress();
                 }
             } else {
@@ -320,16 +489,6 @@ public class DogWord extends ActionBarActivity {
         return false;
     }
 
-    static int fibonacci(int n) {
-        int sum1 = 1, sum2 = 0;
-        while (n-- > 0) {
-            int tmp = sum1;
-            sum1 += sum2;
-            sum2 = tmp;
-        }
-        return sum1;
-    }
-
     private void onTimeExpired() {
         if (isTimed) {
             stopTimer();
@@ -359,7 +518,7 @@ public class DogWord extends ActionBarActivity {
 
     private void showAchievements() {
         gridLayout.dimGrid();
-        int maxScore = wordFinder.computeMaxScore(gridLayout.getGrid());
+        int maxScore = gridWords.getSolution().getMaxScore();
         //Log.d(gWord.TAG, achievement);
         showPopup(describeAchievement(score, maxScore));
     }
@@ -405,7 +564,7 @@ public class DogWord extends ActionBarActivity {
     }
 
     private void updateWordList () {
-        displayArea.setText(gridWords.formatWordList(hintStyle, 1));
+        displayArea.setText(gridWords.getWordList(hintStyle, 1));
     }
 
 }
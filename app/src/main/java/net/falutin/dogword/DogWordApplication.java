@@ -0,0 +1,15 @@
+package net.falutin.dogword;
+
+import android.app.Application;
+
+/**
+ * Starts loading the dictionary as soon as the process starts, before any activity is created.
+ */
+public class DogWordApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        DictionaryHolder.load(this);
+    }
+}
@@ -0,0 +1,54 @@
+package net.falutin.dogword.benchmarks;
+
+import net.falutin.dogword.CellGrid;
+import net.falutin.dogword.DynamicLetterTrie;
+import net.falutin.dogword.LetterTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Locates the word lists and generates the boards shared by the benchmarks.
+ */
+class BenchmarkData {
+
+    /** the seed for the boards, so that every run solves the same ones */
+    static final long BOARD_SEED = 20150301;
+
+    static File getFile(String path) {
+        return new File(System.getProperty("dogword.root", System.getProperty("user.dir")), path);
+    }
+
+    /**
+     * @param name WORDS or WORDS500
+     * @return the contents of the word list, one word per line
+     */
+    static String readWordList(String name) throws IOException {
+        byte[] bytes = Files.readAllBytes(getFile("core/src/test/resources/" + name).toPath());
+        return new String(bytes, Charset.forName("UTF-8"));
+    }
+
+    static DynamicLetterTrie buildTrie(String words) throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader(words));
+        return trie;
+    }
+
+    static LetterTree buildDAG(String name, LetterTree.Format format) throws IOException {
+        return LetterTree.buildDAG(buildTrie(readWordList(name)), format);
+    }
+
+    static CellGrid[] generateBoards(int size, int count) {
+        Random random = new Random(BOARD_SEED + size);
+        CellGrid[] boards = new CellGrid[count];
+        for (int i = 0; i < count; i++) {
+            boards[i] = new CellGrid(size, size, random);
+            boards[i].randomize();
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,83 @@
+package net.falutin.dogword.benchmarks;
+
+import net.falutin.dogword.DawgBuilder;
+import net.falutin.dogword.DynamicLetterTrie;
+import net.falutin.dogword.LetterTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiling a word list: building the trie, collapsing its suffixes and encoding the DAG. Each
+ * step starts from the output of the previous one, prepared outside the measurement: buildDAG
+ * encodes a trie that has already been collapsed, so it measures the encoding alone.
+ * buildSorted measures the whole of the alternative, single-pass pipeline for sorted word lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DictionaryBuildBenchmark {
+
+    @Param({"WORDS500", "WORDS"})
+    public String wordList;
+
+    private String words;
+    private String[] sortedWords;
+    private DynamicLetterTrie trie;
+    private DynamicLetterTrie collapsed;
+
+    @Setup(Level.Trial)
+    public void readWords() throws IOException {
+        words = BenchmarkData.readWordList(wordList);
+        sortedWords = new TreeSet<>(Arrays.asList(words.split("\n"))).toArray(new String[0]);
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTrie() throws IOException {
+        trie = BenchmarkData.buildTrie(words);
+        collapsed = BenchmarkData.buildTrie(words);
+        collapsed.collapseSuffixes();
+    }
+
+    @Benchmark
+    public DynamicLetterTrie add() throws IOException {
+        return BenchmarkData.buildTrie(words);
+    }
+
+    @Benchmark
+    public int collapseSuffixes() {
+        return trie.collapseSuffixes();
+    }
+
+    @Benchmark
+    public LetterTree buildDAG() {
+        return LetterTree.buildDAG(collapsed);
+    }
+
+    @Benchmark
+    public LetterTree buildSorted() {
+        DawgBuilder dawg = new DawgBuilder();
+        for (String word : sortedWords) {
+            dawg.add(word);
+        }
+        return LetterTree.buildDAG(dawg, LetterTree.Format.SIBLING_LIST);
+    }
+}
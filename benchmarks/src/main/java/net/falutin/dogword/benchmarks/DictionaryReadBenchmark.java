@@ -0,0 +1,53 @@
+package net.falutin.dogword.benchmarks;
+
+import net.falutin.dogword.LetterTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the dictionary that ships with the app. read() decodes from bytes already in memory, as
+ * when reading a resource; map() maps the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryReadBenchmark {
+
+    private File file;
+    private byte[] bytes;
+
+    @Setup
+    public void readFile() throws IOException {
+        file = BenchmarkData.getFile("app/src/main/res/raw/words.bin");
+        bytes = Files.readAllBytes(file.toPath());
+    }
+
+    @Benchmark
+    public LetterTree read() throws IOException {
+        return LetterTree.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Benchmark
+    public LetterTree map() throws IOException {
+        return LetterTree.map(file);
+    }
+}
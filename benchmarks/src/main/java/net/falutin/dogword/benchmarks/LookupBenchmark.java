@@ -0,0 +1,80 @@
+package net.falutin.dogword.benchmarks;
+
+import net.falutin.dogword.LetterTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of looking up a word that is in the dictionary, and one that is not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    private static final int WORDS = 1024;
+
+    @Param({"SIBLING_LIST", "BITMAP", "PACKED"})
+    public LetterTree.Format format;
+
+    private LetterTree tree;
+    private String[] hits;
+    private String[] misses;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = BenchmarkData.buildDAG("WORDS500", format);
+        String[] words = BenchmarkData.readWordList("WORDS500").split("\n");
+        Random random = new Random(BenchmarkData.BOARD_SEED);
+        hits = new String[WORDS];
+        misses = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            hits[i] = words[random.nextInt(words.length)];
+            // change the last letter until the word is no longer in the dictionary
+            String miss;
+            do {
+                String word = words[random.nextInt(words.length)];
+                miss = word.substring(0, word.length() - 1) + (char) ('a' + random.nextInt(26));
+            } while (tree.lookup(miss) != 0);
+            misses[i] = miss;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int lookupHit() {
+        int found = 0;
+        for (String word : hits) {
+            found += tree.lookup(word);
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int lookupMiss() {
+        int found = 0;
+        for (String word : misses) {
+            found += tree.lookup(word);
+        }
+        return found;
+    }
+}
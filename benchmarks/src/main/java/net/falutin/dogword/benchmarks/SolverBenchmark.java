@@ -0,0 +1,69 @@
+package net.falutin.dogword.benchmarks;
+
+import net.falutin.dogword.CellGrid;
+import net.falutin.dogword.GridWordFinder;
+import net.falutin.dogword.LetterTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solving a fixed, seeded set of boards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    private static final int BOARDS = 64;
+
+    @Param({"4", "5"})
+    public int size;
+
+    @Param({"SIBLING_LIST", "BITMAP", "PACKED"})
+    public LetterTree.Format format;
+
+    private GridWordFinder finder;
+    private CellGrid[] boards;
+
+    @Setup
+    public void setUp() throws IOException {
+        finder = new GridWordFinder(BenchmarkData.buildDAG("WORDS500", format));
+        boards = BenchmarkData.generateBoards(size, BOARDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void findWords(Blackhole blackhole) {
+        for (CellGrid board : boards) {
+            blackhole.consume(finder.findWords(board));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int computeMaxScore() {
+        int total = 0;
+        for (CellGrid board : boards) {
+            total += finder.computeMaxScore(board);
+        }
+        return total;
+    }
+}
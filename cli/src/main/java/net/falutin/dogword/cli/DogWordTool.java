@@ -0,0 +1,492 @@
+package net.falutin.dogword.cli;
+
+import net.falutin.dogword.BatchSolver;
+import net.falutin.dogword.BoardBank;
+import net.falutin.dogword.CellGrid;
+import net.falutin.dogword.Char2d;
+import net.falutin.dogword.DawgBuilder;
+import net.falutin.dogword.DynamicLetterTrie;
+import net.falutin.dogword.GridWordFinder;
+import net.falutin.dogword.LetterTree;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Command-line tool for working with dictionaries and boards outside the app:
+ * <ul>
+ *     <li>compile: compiles a word list, one word per line, into a binary dictionary. Sorted lists
+ *     are compiled in a single streaming pass; others are first loaded into a trie. A payload file
+ *     assigns each word a number, such as a rarity tier, that scales its score. With --qu, each "qu"
+ *     is compiled as a single letter, as the Q tile spells it, and words with a bare q are dropped.</li>
+ *     <li>decompile: writes the words of a binary dictionary back out as a sorted word list, and
+ *     optionally their payload, as a payload file that compile accepts.</li>
+ *     <li>solve: solves boards read from stdin, one per line, printing the number of words and
+ *     the maximum score for each, and with --words, the words themselves, in alphabetical order</li>
+ *     <li>generate: generates and solves random boards, printing the distributions of word counts
+ *     and scores</li>
+ *     <li>bank: generates and solves random boards, writing them with their statistics to a board
+ *     bank sorted by maximum score</li>
+ * </ul>
+ * Boards are written as their letters, row by row, as in "MRABSYLHDRNEMEDE"; they must be square.
+ */
+public class DogWordTool {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String USAGE =
+            "usage: dogword compile [--format SIBLING_LIST|BITMAP|PACKED] [--payload <file>] [--qu] <word list> <dictionary>\n" +
+            "       dogword decompile [--payload <file>] <dictionary> <word list>\n" +
+            "       dogword solve --dict <dictionary> [--min-length N] [--words]\n" +
+            "       dogword generate --dict <dictionary> [--count N] [--size N] [--seed N] [--boards]\n" +
+            "       dogword bank --dict <dictionary> [--count N] [--size N] [--seed N] <board bank>";
+
+    private final PrintStream out;
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> arguments = new ArrayList<>();
+
+    DogWordTool(PrintStream out, String[] args) {
+        this.out = out;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                String name = args[i].substring(2);
+                if (name.equals("words") || name.equals("boards") || name.equals("qu")) {
+                    options.put(name, "true");
+                } else if (i + 1 < args.length) {
+                    options.put(name, args[++i]);
+                } else {
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                }
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false, "UTF-8");
+        DogWordTool tool = new DogWordTool(out, Arrays.copyOfRange(args, 1, args.length));
+        try {
+            switch (args[0]) {
+                case "compile":
+                    tool.compile();
+                    break;
+                case "decompile":
+                    tool.decompile();
+                    break;
+                case "solve":
+                    tool.solve(new InputStreamReader(System.in, UTF8));
+                    break;
+                case "generate":
+                    tool.generate();
+                    break;
+                case "bank":
+                    tool.bank();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown command: " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        } finally {
+            out.flush();
+        }
+    }
+
+    void compile() throws IOException {
+        if (arguments.size() != 2) {
+            throw new IllegalArgumentException("compile requires a word list and an output file");
+        }
+        // by default, the builder picks the format from the size of the dictionary
+        String formatName = options.get("format");
+        LetterTree.Format format = formatName == null ? null : LetterTree.Format.valueOf(formatName);
+        long start = System.nanoTime();
+        LetterTree tree;
+        DawgBuilder dawg = readSorted();
+        if (dawg != null) {
+            tree = format == null ? LetterTree.buildDAG(dawg) : LetterTree.buildDAG(dawg, format);
+        } else {
+            // not sorted: build the whole trie in memory instead
+            DynamicLetterTrie trie = new DynamicLetterTrie(options.containsKey("qu"));
+            Reader in = openWordList();
+            try {
+                trie.add(in);
+            } finally {
+                in.close();
+            }
+            tree = format == null ? LetterTree.buildDAG(trie) : LetterTree.buildDAG(trie, format);
+        }
+        if (options.containsKey("payload")) {
+            tree = tree.withPayload(readPayload(tree, options.get("payload")));
+        }
+        FileChannel channel = new FileOutputStream(arguments.get(1)).getChannel();
+        try {
+            tree.write(channel);
+        } finally {
+            channel.close();
+        }
+        out.println(String.format("compiled %d words into %s in %.3f sec", tree.getWordCount(), tree,
+                (System.nanoTime() - start) / 1e9));
+    }
+
+    /**
+     * Builds the automaton in one streaming pass, which requires the word list to be sorted.
+     * @return the automaton, or null if the words are not sorted
+     */
+    private DawgBuilder readSorted() throws IOException {
+        DawgBuilder dawg = new DawgBuilder(options.containsKey("qu"));
+        Reader in = openWordList();
+        try {
+            dawg.add(in);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "; building a trie");
+            return null;
+        } finally {
+            in.close();
+        }
+        return dawg;
+    }
+
+    /**
+     * Reads a word's payload, such as its rarity tier, from each line of a file, as the word and
+     * a number from 0 to 255 separated by white space. Words that are not in the dictionary are
+     * skipped, and words that are not listed get zero.
+     */
+    private byte[] readPayload(LetterTree tree, String path) throws IOException {
+        byte[] payload = new byte[tree.getWordCount()];
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(path), UTF8));
+        int skipped = 0;
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length != 2) {
+                    continue;
+                }
+                int ordinal = tree.getOrdinal(fields[0]);
+                int value = Integer.parseInt(fields[1]);
+                if (value < 0 || value > 255) {
+                    throw new IllegalArgumentException("payload out of range: " + line);
+                }
+                if (ordinal < 0) {
+                    ++skipped;
+                } else {
+                    payload[ordinal] = (byte) value;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        if (skipped > 0) {
+            System.err.println("skipped the payload of " + skipped + " words not in the dictionary");
+        }
+        return payload;
+    }
+
+    void decompile() throws IOException {
+        if (arguments.size() != 2) {
+            throw new IllegalArgumentException("decompile requires a dictionary and an output file");
+        }
+        long start = System.nanoTime();
+        LetterTree tree = LetterTree.map(new File(arguments.get(0)));
+        Writer words = openWriter(arguments.get(1));
+        Writer payload = options.containsKey("payload") ? openWriter(options.get("payload")) : null;
+        try {
+            tree.decompile(words, tree.hasPayload() ? payload : null);
+        } finally {
+            words.close();
+            if (payload != null) {
+                payload.close();
+            }
+        }
+        out.println(String.format("decompiled %d words from %s in %.3f sec", tree.getWordCount(), tree,
+                (System.nanoTime() - start) / 1e9));
+        if (tree.hasQuSymbol()) {
+            out.println("the dictionary has QU symbols; compile it with --qu");
+        }
+    }
+
+    private static Writer openWriter(String path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), UTF8), 1 << 16);
+    }
+
+    private Reader openWordList() throws IOException {
+        return new InputStreamReader(new FileInputStream(arguments.get(0)), UTF8);
+    }
+
+    void solve(Reader in) throws IOException, InterruptedException {
+        final LetterTree tree = loadDictionary();
+        GridWordFinder finder = new GridWordFinder(tree, Integer.parseInt(getOption("min-length", "3")));
+        BatchSolver solver = new BatchSolver(finder, Runtime.getRuntime().availableProcessors());
+        BoardReader boards = new BoardReader(new BufferedReader(in));
+        try {
+            BatchSolver.Stats stats;
+            if (options.containsKey("words")) {
+                // the workers list the words as they solve each board; only spelling them is left
+                stats = solver.solveWords(boards, new BatchSolver.WordListHandler() {
+                    @Override
+                    public void solved(long index, Char2d grid, int maxScore, int longestWord, int[] ordinals) {
+                        printResult(grid, ordinals.length, maxScore);
+                        for (int ordinal : ordinals) {
+                            out.print('\t');
+                            out.print(tree.getWord(ordinal));
+                        }
+                        out.println();
+                    }
+                });
+            } else {
+                stats = solver.solve(boards, new BatchSolver.ResultHandler() {
+                    @Override
+                    public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                        printResult(grid, wordCount, maxScore);
+                        out.println();
+                    }
+                });
+            }
+            System.err.println(stats);
+        } finally {
+            solver.shutdown();
+        }
+    }
+
+    private void printResult(Char2d grid, int wordCount, int maxScore) {
+        out.print(grid);
+        out.print('\t');
+        out.print(wordCount);
+        out.print('\t');
+        out.print(maxScore);
+    }
+
+    void generate() throws IOException, InterruptedException {
+        final boolean printBoards = options.containsKey("boards");
+        final Histogram wordCounts = new Histogram();
+        final Histogram scores = new Histogram();
+        BatchSolver solver = new BatchSolver(new GridWordFinder(loadDictionary()),
+                Runtime.getRuntime().availableProcessors());
+        try {
+            BatchSolver.Stats stats = solver.solve(randomBoards(), new BatchSolver.ResultHandler() {
+                @Override
+                public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                    wordCounts.add(wordCount);
+                    scores.add(maxScore);
+                    if (printBoards) {
+                        out.println(grid + "\t" + wordCount + "\t" + maxScore);
+                    }
+                }
+            });
+            out.println(stats);
+            out.println("words:");
+            wordCounts.print(out);
+            out.println("scores:");
+            scores.print(out);
+        } finally {
+            solver.shutdown();
+        }
+    }
+
+    void bank() throws IOException, InterruptedException {
+        if (arguments.size() != 1) {
+            throw new IllegalArgumentException("bank requires an output file");
+        }
+        int size = Integer.parseInt(getOption("size", "4"));
+        final BoardBank.Builder builder = new BoardBank.Builder(size, size);
+        BatchSolver solver = new BatchSolver(new GridWordFinder(loadDictionary()),
+                Runtime.getRuntime().availableProcessors());
+        BoardBank bank;
+        try {
+            BatchSolver.Stats stats = solver.solve(randomBoards(), new BatchSolver.ResultHandler() {
+                @Override
+                public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                    builder.add(grid, wordCount, maxScore, longestWord);
+                }
+            });
+            System.err.println(stats);
+            bank = builder.build();
+        } finally {
+            solver.shutdown();
+        }
+        DataOutputStream bankOut = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(arguments.get(0)), 1 << 16));
+        try {
+            bank.write(bankOut);
+        } finally {
+            bankOut.close();
+        }
+        out.println("wrote " + bank + " with scores up to " + bank.getHighestScore());
+    }
+
+    /**
+     * @return --count random boards of --size, seeded with --seed if given
+     */
+    private Iterator<CellGrid> randomBoards() {
+        final int count = Integer.parseInt(getOption("count", "10000"));
+        final int size = Integer.parseInt(getOption("size", "4"));
+        final Random random = options.containsKey("seed") ? new Random(Long.parseLong(options.get("seed"))) : new Random();
+        return new Iterator<CellGrid>() {
+            int generated;
+
+            @Override
+            public boolean hasNext() {
+                return generated < count;
+            }
+
+            @Override
+            public CellGrid next() {
+                if (generated++ >= count) {
+                    throw new NoSuchElementException();
+                }
+                CellGrid grid = new CellGrid(size, size, random);
+                grid.randomize();
+                return grid;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private LetterTree loadDictionary() throws IOException {
+        String path = options.get("dict");
+        if (path == null) {
+            throw new IllegalArgumentException("--dict is required");
+        }
+        return LetterTree.map(new File(path));
+    }
+
+    private String getOption(String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Reads square boards, one per line, skipping blank lines.
+     */
+    static class BoardReader implements Iterator<CellGrid> {
+        private final BufferedReader in;
+        private final Random random = new Random();
+        private String line;
+
+        BoardReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (line == null || line.isEmpty()) {
+                    line = in.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    line = line.trim().toUpperCase();
+                }
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public CellGrid next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int size = (int) Math.round(Math.sqrt(line.length()));
+            if (size * size != line.length()) {
+                throw new IllegalArgumentException("board is not square: " + line);
+            }
+            CellGrid grid = new CellGrid(size, size, random);
+            grid.setCells(line);
+            line = null;
+            return grid;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Counts occurrences of small non-negative integers.
+     */
+    static class Histogram {
+        private long[] counts = new long[256];
+        private long total;
+        private long sum;
+        private int max;
+
+        void add(int value) {
+            if (value >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(value + 1, counts.length * 2));
+            }
+            ++counts[value];
+            ++total;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        /**
+         * @param fraction between 0 and 1
+         * @return the smallest value such that the given fraction of values are no greater
+         */
+        int percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int value = 0; value <= max; value++) {
+                seen += counts[value];
+                if (seen >= rank && seen > 0) {
+                    return value;
+                }
+            }
+            return max;
+        }
+
+        void print(PrintStream out) {
+            if (total == 0) {
+                return;
+            }
+            out.println(String.format("  mean %.1f  min %d  p10 %d  p25 %d  median %d  p75 %d  p90 %d  max %d",
+                    sum / (double) total, percentile(0), percentile(0.1), percentile(0.25), percentile(0.5),
+                    percentile(0.75), percentile(0.9), max));
+            // twenty buckets, or fewer when the range is small
+            int width = Math.max(1, (max + 20) / 20);
+            for (int lo = 0; lo <= max; lo += width) {
+                long n = 0;
+                for (int value = lo; value < lo + width && value <= max; value++) {
+                    n += counts[value];
+                }
+                out.println(String.format("  %5d-%-5d %9d %5.1f%%", lo, lo + width - 1, n, 100.0 * n / total));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.falutin.dogword.cli;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DogWordToolTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testCompileAndSolve() throws IOException, InterruptedException {
+        File words = File.createTempFile("words", ".txt");
+        words.deleteOnExit();
+        Files.write(words.toPath(), Arrays.asList("act", "cat", "cats", "dog", "sat", "scat"), UTF8);
+        File dict = File.createTempFile("words", ".bin");
+        dict.deleteOnExit();
+        assertTrue(run(null, "compile", words.getPath(), dict.getPath()).startsWith("compiled 6 words into "));
+
+        // CATS is a 2x2 board, on which every cell touches every other
+        String boards = "CATS\n\nDOGX\n";
+        assertEquals("CATS\t5\t7\nDOGX\t1\t1\n", run(boards, "solve", "--dict", dict.getPath()));
+        assertEquals("CATS\t5\t7\tact\tcat\tcats\tsat\tscat\nDOGX\t1\t1\tdog\n",
+                run(boards, "solve", "--dict", dict.getPath(), "--words"));
+        assertEquals("CATS\t2\t4\tcats\tscat\nDOGX\t0\t0\n",
+                run(boards, "solve", "--dict", dict.getPath(), "--min-length", "4", "--words"));
+    }
+
+    /**
+     * Runs a command, with the given input for solve, and returns what it printed.
+     */
+    private static String run(String input, String command, String... args) throws IOException, InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false, "UTF-8");
+        DogWordTool tool = new DogWordTool(out, args);
+        switch (command) {
+            case "compile":
+                tool.compile();
+                break;
+            case "solve":
+                tool.solve(new StringReader(input));
+                break;
+            default:
+                fail("unknown command: " + command);
+        }
+        out.flush();
+        return new String(bytes.toByteArray(), UTF8);
+    }
+}
@@ -0,0 +1,281 @@
+package net.falutin.dogword;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves large numbers of grids in parallel, sharing a single dictionary among a pool of worker
+ * threads. Grids are solved in batches; results are handed back on the calling thread in the
+ * order in which the grids were supplied.
+ */
+public class BatchSolver {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final GridWordFinder finder;
+    private final int threads;
+    private final ExecutorService executor;
+    private final ThreadLocal<Scorer> scorers = new ThreadLocal<Scorer>() {
+        @Override
+        protected Scorer initialValue() {
+            return new Scorer(finder);
+        }
+    };
+
+    /**
+     * Receives the result for each grid.
+     */
+    public interface ResultHandler {
+        /**
+         * @param index the position of the grid in the input, counting from zero
+         * @param grid the grid
+         * @param wordCount the number of distinct words on the grid
+         * @param maxScore the total score of those words
+         * @param longestWord the length of the longest of those words, or zero if there are none
+         */
+        void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord);
+    }
+
+    /**
+     * Receives the result for each grid together with the words on it, which the worker threads
+     * collect as they solve the grid.
+     */
+    public interface WordListHandler {
+        /**
+         * @param index the position of the grid in the input, counting from zero
+         * @param grid the grid
+         * @param maxScore the total score of the words on the grid
+         * @param longestWord the length of the longest of those words, or zero if there are none
+         * @param ordinals the dictionary ordinals of the distinct words on the grid, in increasing
+         *                 order, so that they list the words alphabetically; see LetterTree.getWord()
+         */
+        void solved(long index, Char2d grid, int maxScore, int longestWord, int[] ordinals);
+    }
+
+    /**
+     * The result for a single grid, as returned by solveAll.
+     */
+    public static class Result {
+        public final int wordCount;
+        public final int maxScore;
+        public final int longestWord;
+
+        Result(int wordCount, int maxScore, int longestWord) {
+            this.wordCount = wordCount;
+            this.maxScore = maxScore;
+            this.longestWord = longestWord;
+        }
+    }
+
+    /**
+     * Statistics about a run of solve().
+     */
+    public static class Stats {
+        public final long boards;
+        public final long elapsedNanos;
+
+        Stats(long boards, long elapsedNanos) {
+            this.boards = boards;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getBoardsPerSecond() {
+            return elapsedNanos == 0 ? 0 : boards * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d boards in %.3f sec (%.0f boards/sec)", boards, elapsedNanos / 1e9,
+                    getBoardsPerSecond());
+        }
+    }
+
+    public BatchSolver(LetterTree tree) {
+        this(new GridWordFinder(tree), Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchSolver(GridWordFinder finder, int threads) {
+        this.finder = finder;
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Solves all the grids. No more than a few batches per thread are in progress at any time, so
+     * the input may be an arbitrarily long stream. The grids must not be modified after they are
+     * returned by the iterator.
+     * @param grids the grids to solve
+     * @param handler receives the results in input order, on the calling thread
+     * @return the number of grids solved and the time taken
+     */
+    public Stats solve(Iterator<? extends Char2d> grids, ResultHandler handler) throws InterruptedException {
+        return solve(grids, handler, null);
+    }
+
+    /**
+     * Solves all the grids, as solve() does, and also lists the words on each one.
+     * @param handler receives the results, with the words, in input order, on the calling thread
+     */
+    public Stats solveWords(Iterator<? extends Char2d> grids, WordListHandler handler) throws InterruptedException {
+        return solve(grids, null, handler);
+    }
+
+    private Stats solve(Iterator<? extends Char2d> grids, ResultHandler handler, WordListHandler wordHandler)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long index = 0;
+        ArrayDeque<BatchTask> pending = new ArrayDeque<>();
+        while (grids.hasNext()) {
+            Char2d[] batch = new Char2d[BATCH_SIZE];
+            int n = 0;
+            while (n < BATCH_SIZE && grids.hasNext()) {
+                batch[n++] = grids.next();
+            }
+            BatchTask task = new BatchTask(batch, n, wordHandler != null);
+            task.future = executor.submit(task);
+            pending.add(task);
+            if (pending.size() >= 2 * threads) {
+                index = deliver(pending.remove(), handler, wordHandler, index);
+            }
+        }
+        while (!pending.isEmpty()) {
+            index = deliver(pending.remove(), handler, wordHandler, index);
+        }
+        return new Stats(index, System.nanoTime() - start);
+    }
+
+    /**
+     * Solves all the grids in a list.
+     * @return the results, in the same order as the grids
+     */
+    public List<Result> solveAll(List<? extends Char2d> grids) throws InterruptedException {
+        final List<Result> results = new ArrayList<>(grids.size());
+        solve(grids.iterator(), new ResultHandler() {
+            @Override
+            public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                results.add(new Result(wordCount, maxScore, longestWord));
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Stops the worker threads once any grids in progress have been solved.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private long deliver(BatchTask task, ResultHandler handler, WordListHandler wordHandler, long index)
+            throws InterruptedException {
+        int[] results;
+        try {
+            results = task.future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("failed to solve grid", e.getCause());
+        }
+        for (int i = 0; i < task.count; i++) {
+            if (wordHandler != null) {
+                wordHandler.solved(index++, task.grids[i], results[3 * i + 1], results[3 * i + 2], task.words[i]);
+            } else {
+                handler.solved(index++, task.grids[i], results[3 * i], results[3 * i + 1], results[3 * i + 2]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Solves one batch of grids, returning their word counts, scores and longest words as triples
+     * in a single array. If asked, it also lists the ordinals of each grid's words; these are read
+     * only once the future completes.
+     */
+    private class BatchTask implements Callable<int[]> {
+        private final Char2d[] grids;
+        private final int count;
+        private final int[][] words;
+        private Future<int[]> future;
+
+        BatchTask(Char2d[] grids, int count, boolean listWords) {
+            this.grids = grids;
+            this.count = count;
+            words = listWords ? new int[count][] : null;
+        }
+
+        @Override
+        public int[] call() {
+            Scorer scorer = scorers.get();
+            int[] results = new int[count * 3];
+            for (int i = 0; i < count; i++) {
+                scorer.reset();
+                finder.findWords(grids[i], scorer);
+                results[3 * i] = scorer.wordCount;
+                results[3 * i + 1] = scorer.score;
+                results[3 * i + 2] = scorer.longestWord;
+                if (words != null) {
+                    words[i] = scorer.getOrdinals();
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Per-thread scratch state that counts and scores distinct words. It remembers which bits it has
+     * set so that it can clear them without sweeping the whole set.
+     */
+    private static class Scorer implements GridWordFinder.WordVisitor {
+        private final GridWordFinder finder;
+        private final BitSet found;
+        private int[] ordinals = new int[256];
+        private int wordCount;
+        private int score;
+        private int longestWord;
+
+        Scorer(GridWordFinder finder) {
+            this.finder = finder;
+            found = new BitSet(finder.getTree().getWordCount());
+        }
+
+        void reset() {
+            for (int i = 0; i < wordCount; i++) {
+                found.clear(ordinals[i]);
+            }
+            wordCount = 0;
+            score = 0;
+            longestWord = 0;
+        }
+
+        /**
+         * @return the ordinals of the words found since the last reset, in increasing order
+         */
+        int[] getOrdinals() {
+            int[] sorted = Arrays.copyOf(ordinals, wordCount);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        @Override
+        public void visitWord(int ordinal, int length, byte[] path, int pathLength) {
+            if (!found.get(ordinal)) {
+                found.set(ordinal);
+                if (wordCount == ordinals.length) {
+                    int[] grown = new int[ordinals.length * 2];
+                    System.arraycopy(ordinals, 0, grown, 0, ordinals.length);
+                    ordinals = grown;
+                }
+                ordinals[wordCount++] = ordinal;
+                score += finder.score(ordinal, length);
+                longestWord = Math.max(longestWord, length);
+            }
+        }
+    }
+}
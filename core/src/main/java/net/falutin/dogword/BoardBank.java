@@ -0,0 +1,293 @@
+package net.falutin.dogword;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A bank of boards solved in advance, with the word count, maximum score and longest word of
+ * each. Boards are sorted by maximum score, and an index gives the first board with each score,
+ * so picking a board of a given difficulty takes constant time, and nothing is solved to do it.
+ *
+ * The file holds a header (a magic number, the board width and height, the number of boards, and
+ * the highest score), then the index: for each score from 0 to the highest score plus one, the
+ * position of the first board with at least that score. Then come the boards, each as its letters,
+ * row by row, one byte each; its word count and maximum score as unsigned shorts; and the length of
+ * its longest word as an unsigned byte.
+ */
+public class BoardBank {
+
+    private static final int MAGIC = 0x44574242; // DWBB
+    private static final int HEADER_SIZE = 5;
+
+    private final int width, height;
+    private final int recordSize;
+    private final int count;
+    // index[score] is the position of the first board whose maximum score is at least score
+    private final int[] index;
+    private final ByteBuffer records;
+
+    private BoardBank(int width, int height, int count, int[] index, ByteBuffer records) {
+        this.width = width;
+        this.height = height;
+        this.count = count;
+        this.index = index;
+        this.records = records;
+        recordSize = recordSize(width, height);
+    }
+
+    private static int recordSize(int width, int height) {
+        return width * height + 5;
+    }
+
+    /**
+     * Collects solved boards, in any order, and sorts them into a bank.
+     */
+    public static class Builder {
+        private final int width, height;
+        private final int recordSize;
+        private byte[] records;
+        private int count;
+        private int[] scoreCounts = new int[256];
+        private int highestScore;
+
+        public Builder(int width, int height) {
+            this.width = width;
+            this.height = height;
+            recordSize = recordSize(width, height);
+            records = new byte[recordSize * 1024];
+        }
+
+        /**
+         * Adds a board, with its statistics as computed by BatchSolver or GridWordFinder.solve().
+         */
+        public void add(Char2d grid, int wordCount, int maxScore, int longestWord) {
+            if (grid.width() != width || grid.height() != height) {
+                throw new IllegalArgumentException("expected a " + width + "x" + height + " board, not " +
+                        grid.width() + "x" + grid.height());
+            }
+            if (wordCount < 0 || wordCount > 0xffff || maxScore < 0 || maxScore > 0xffff ||
+                    longestWord < 0 || longestWord > 0xff) {
+                throw new IllegalArgumentException(String.format("board statistics out of range: %d words, score %d, longest %d",
+                        wordCount, maxScore, longestWord));
+            }
+            if (records.length < (count + 1) * recordSize) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+            int pos = count * recordSize;
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    records[pos++] = (byte) grid.get(row, col);
+                }
+            }
+            records[pos++] = (byte) (wordCount >> 8);
+            records[pos++] = (byte) wordCount;
+            records[pos++] = (byte) (maxScore >> 8);
+            records[pos++] = (byte) maxScore;
+            records[pos] = (byte) longestWord;
+            ++count;
+            if (maxScore >= scoreCounts.length) {
+                scoreCounts = Arrays.copyOf(scoreCounts, Math.max(maxScore + 1, scoreCounts.length * 2));
+            }
+            ++scoreCounts[maxScore];
+            highestScore = Math.max(highestScore, maxScore);
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return the boards added so far, sorted by maximum score; boards with the same score keep
+         * the order in which they were added
+         */
+        public BoardBank build() {
+            int[] index = new int[highestScore + 2];
+            for (int score = 0; score <= highestScore; score++) {
+                index[score + 1] = index[score] + scoreCounts[score];
+            }
+            // a counting sort, placing each board after those with lower scores
+            int[] next = Arrays.copyOf(index, index.length);
+            byte[] sorted = new byte[count * recordSize];
+            for (int i = 0; i < count; i++) {
+                int pos = i * recordSize;
+                int score = ((records[pos + recordSize - 3] & 0xff) << 8) | (records[pos + recordSize - 2] & 0xff);
+                System.arraycopy(records, pos, sorted, next[score]++ * recordSize, recordSize);
+            }
+            return new BoardBank(width, height, count, index, ByteBuffer.wrap(sorted));
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of boards in the bank
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the highest maximum score of any board in the bank
+     */
+    public int getHighestScore() {
+        return index.length - 2;
+    }
+
+    /**
+     * @return the number of boards whose maximum score is in the given range, inclusive
+     */
+    public int count(int minScore, int maxScore) {
+        return indexAfter(maxScore) - indexOf(minScore);
+    }
+
+    /**
+     * Picks a board at random from those whose maximum score is in the given range, inclusive.
+     * @return the board's position in the bank, or -1 if there are no such boards
+     */
+    public int pick(int minScore, int maxScore, Random random) {
+        int start = indexOf(minScore);
+        int end = indexAfter(maxScore);
+        if (start >= end) {
+            return -1;
+        }
+        return start + random.nextInt(end - start);
+    }
+
+    /**
+     * @return the position of the first board whose maximum score exceeds the given score
+     */
+    private int indexAfter(int score) {
+        return score >= getHighestScore() ? count : indexOf(score + 1);
+    }
+
+    private int indexOf(int score) {
+        if (score <= 0) {
+            return 0;
+        }
+        if (score >= index.length) {
+            return count;
+        }
+        return index[score];
+    }
+
+    /**
+     * @return the letters of the board at the given position, row by row, as accepted by
+     * CellGrid.setCells()
+     */
+    public String getBoard(int i) {
+        char[] letters = new char[width * height];
+        int pos = i * recordSize;
+        for (int j = 0; j < letters.length; j++) {
+            letters[j] = (char) (records.get(pos + j) & 0xff);
+        }
+        return new String(letters);
+    }
+
+    public int getWordCount(int i) {
+        return records.getShort(i * recordSize + recordSize - 5) & 0xffff;
+    }
+
+    public int getMaxScore(int i) {
+        return records.getShort(i * recordSize + recordSize - 3) & 0xffff;
+    }
+
+    public int getLongestWord(int i) {
+        return records.get(i * recordSize + recordSize - 1) & 0xff;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(count);
+        out.writeInt(getHighestScore());
+        for (int start : index) {
+            out.writeInt(start);
+        }
+        byte[] buf = new byte[recordSize * 1024];
+        ByteBuffer src = records.duplicate();
+        src.position(0).limit(count * recordSize);
+        while (src.hasRemaining()) {
+            int n = Math.min(buf.length, src.remaining());
+            src.get(buf, 0, n);
+            out.write(buf, 0, n);
+        }
+    }
+
+    /**
+     * Reads a bank written by write() into the heap. This works with any stream (eg an Android
+     * resource); use map() when the bank is a plain file.
+     */
+    public static BoardBank read(DataInputStream in) throws IOException {
+        int[] header = new int[HEADER_SIZE];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = in.readInt();
+        }
+        int[] index = readIndex(header);
+        for (int i = 0; i < index.length; i++) {
+            index[i] = in.readInt();
+        }
+        byte[] records = new byte[header[3] * recordSize(header[1], header[2])];
+        in.readFully(records);
+        return new BoardBank(header[1], header[2], header[3], index, ByteBuffer.wrap(records));
+    }
+
+    /**
+     * Maps a bank written by write() into memory. Only the index, with one entry per score, is
+     * copied; the boards are read directly from the mapped file.
+     */
+    public static BoardBank map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (bytes.remaining() < HEADER_SIZE * 4) {
+                throw new IOException("invalid board bank: " + file);
+            }
+            int[] header = new int[HEADER_SIZE];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = bytes.getInt();
+            }
+            int[] index = readIndex(header);
+            long size = (long) header[3] * recordSize(header[1], header[2]);
+            if (bytes.remaining() < index.length * 4L + size) {
+                throw new IOException("invalid board bank: " + file);
+            }
+            bytes.asIntBuffer().get(index);
+            bytes.position(bytes.position() + index.length * 4);
+            // the mapping stays valid after the channel is closed
+            return new BoardBank(header[1], header[2], header[3], index, bytes.slice());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks the header, and allocates the index it describes.
+     */
+    private static int[] readIndex(int[] header) throws IOException {
+        if (header[0] != MAGIC || header[1] <= 0 || header[2] <= 0 ||
+                header[1] * header[2] > GridWordFinder.MAX_CELLS || header[3] < 0 || header[4] < 0) {
+            throw new IOException("invalid board bank");
+        }
+        return new int[header[4] + 2];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BoardBank<%dx%d,%d>", width, height, count);
+    }
+}
@@ -0,0 +1,193 @@
+package net.falutin.dogword;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Keeps a few solved boards ready to play. A background thread generates random boards, solves
+ * them and discards those that fail the quality criteria, until the queue is full; it resumes as
+ * soon as a board is taken. Starting a game then costs neither a solve nor any rejected boards.
+ */
+public class BoardPool {
+
+    private final GridWordFinder finder;
+    private final int width, height;
+    private final Criteria criteria;
+    private final Random random;
+    private final BlockingQueue<Board> boards;
+    private Thread generator;
+    private volatile long generated;
+    private volatile long rejected;
+
+    /**
+     * The limits that a board must meet to be played.
+     */
+    public static class Criteria {
+        /** at least 30 words, one of at least seven letters, and a maximum score from 50 to 400 */
+        public static final Criteria DEFAULT = new Criteria(30, 7, 50, 400);
+
+        public final int minWords;
+        public final int minLongestWord;
+        public final int minScore;
+        public final int maxScore;
+
+        /**
+         * @param minWords the least number of words on a board
+         * @param minLongestWord the least length of the longest word on a board
+         * @param minScore the least maximum score of a board
+         * @param maxScore the greatest maximum score of a board
+         */
+        public Criteria(int minWords, int minLongestWord, int minScore, int maxScore) {
+            this.minWords = minWords;
+            this.minLongestWord = minLongestWord;
+            this.minScore = minScore;
+            this.maxScore = maxScore;
+        }
+
+        public boolean accepts(Solution solution) {
+            return solution.getWordCount() >= minWords
+                    && solution.getLongestWordLength() >= minLongestWord
+                    && solution.getMaxScore() >= minScore
+                    && solution.getMaxScore() <= maxScore;
+        }
+    }
+
+    /**
+     * A board, its solution, and the part of the dictionary that can be spelled on it.
+     */
+    public static class Board {
+        public final CellGrid grid;
+        public final Solution solution;
+        /** the words that can be spelled from the board's letters; see LetterTree.restrictTo() */
+        public final LetterTree dictionary;
+        /** for each word of the dictionary, by ordinal, its position in the solution, or -1 if it
+         * cannot be traced on the board; so a word selected on the board is found by its
+         * ordinal, without spelling it out */
+        public final int[] solutionIndexes;
+
+        /**
+         * @param dictionary the words that can be spelled from the board's letters, as returned
+         *                   by restrictTo() of the dictionary that solved the board
+         */
+        public Board(CellGrid grid, Solution solution, LetterTree dictionary) {
+            this.grid = grid;
+            this.solution = solution;
+            this.dictionary = dictionary;
+            solutionIndexes = new int[dictionary.getWordCount()];
+            Arrays.fill(solutionIndexes, -1);
+            String[] words = solution.getWords();
+            for (int i = 0; i < words.length; i++) {
+                solutionIndexes[dictionary.getOrdinal(words[i].toLowerCase())] = i;
+            }
+        }
+    }
+
+    public BoardPool(GridWordFinder finder, int width, int height, Criteria criteria, int capacity) {
+        this(finder, width, height, criteria, capacity, new Random());
+    }
+
+    /**
+     * @param capacity the number of boards to keep ready
+     * @param random the source of randomness for the letters; only the generator thread uses it
+     */
+    public BoardPool(GridWordFinder finder, int width, int height, Criteria criteria, int capacity,
+                     Random random) {
+        this.finder = finder;
+        this.width = width;
+        this.height = height;
+        this.criteria = criteria;
+        this.random = random;
+        boards = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Starts generating boards in the background, unless that has already started. The generator
+     * runs at low priority, as a daemon, until stop() is called.
+     */
+    public synchronized void start() {
+        if (generator != null) {
+            return;
+        }
+        generator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    generate();
+                } catch (InterruptedException e) {
+                    // stopped
+                }
+            }
+        }, "board-generator");
+        generator.setDaemon(true);
+        generator.setPriority(Thread.MIN_PRIORITY);
+        generator.start();
+    }
+
+    /**
+     * Stops generating boards. Boards that are already queued may still be taken.
+     */
+    public synchronized void stop() {
+        if (generator != null) {
+            generator.interrupt();
+            generator = null;
+        }
+    }
+
+    /**
+     * @return a board that meets the criteria, or null if none is ready
+     */
+    public Board poll() {
+        return boards.poll();
+    }
+
+    /**
+     * @return a board that meets the criteria, waiting for one to be generated if none is ready
+     */
+    public Board take() throws InterruptedException {
+        return boards.take();
+    }
+
+    /**
+     * Returns a board that was taken but never played, if there is room for it.
+     */
+    public void offer(Board board) {
+        boards.offer(board);
+    }
+
+    /**
+     * @return the number of boards ready to be taken
+     */
+    public int size() {
+        return boards.size();
+    }
+
+    /**
+     * @return the number of boards generated and solved so far, including rejected ones
+     */
+    public long getGeneratedCount() {
+        return generated;
+    }
+
+    /**
+     * @return the number of boards that failed the criteria so far
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    private void generate() throws InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            CellGrid grid = new CellGrid(width, height, random);
+            grid.randomize();
+            Solution solution = finder.solve(grid);
+            ++generated;
+            if (criteria.accepts(solution)) {
+                boards.put(new Board(grid, solution, finder.getTree().restrictTo(grid)));
+            } else {
+                ++rejected;
+            }
+        }
+    }
+}
@@ -22,10 +22,18 @@ public class CellGrid implements Char2d {
             'V','V','W','W','X','Y','Y','Z'};
 
     public CellGrid (int width, int height) {
+        this (width, height, new Random());
+    }
+
+    /**
+     * @param random the source of randomness for the letters; supply a seeded Random to generate
+     *               a repeatable sequence of grids.
+     */
+    public CellGrid (int width, int height, Random random) {
         this.width = width;
         this.height = height;
         cells = new char[width * height];
-        random = new Random();
+        this.random = random;
         permutedLetters = permuteLetters();
     }
 
@@ -50,8 +58,9 @@ public class CellGrid implements Char2d {
     private char getRandomChar(int cellIndex) {
         // return permutedLetters[random.nextInt(permutedLetters.length)];
         // choose from a different bag for each cell
+        // grids with more than 16 cells reuse the bags
         int ncells = 16;
-        return permutedLetters[ncells * random.nextInt(LETTERS.length / ncells) + cellIndex];
+        return permutedLetters[ncells * random.nextInt(LETTERS.length / ncells) + cellIndex % ncells];
     }
 
     public char get(int idx) {
@@ -5,6 +5,9 @@ package net.falutin.dogword;
  */
 public interface Char2d {
 
+    /** the letter of a wildcard cell, which may stand for any letter */
+    char WILDCARD = '*';
+
     int width();
 
     int height();
@@ -0,0 +1,315 @@
+package net.falutin.dogword;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Builds a minimal DAWG (directed acyclic word graph) incrementally from a sorted list of words,
+ * following Daciuk et al, "Incremental Construction of Minimal Acyclic Finite-State Automata".
+ * Only the states along the most recently added word are still open to change; as soon as a new
+ * word diverges from that path, the states below the divergence are frozen, and each is either
+ * merged with an identical frozen state or registered as a new one. Peak memory is therefore
+ * proportional to the size of the minimal automaton, not to that of the full trie built by
+ * DynamicLetterTrie.
+ *
+ * Frozen states are held in primitive arrays: the edges of each state are contiguous, and the
+ * register of unique states is an open-addressing hash table of state ids.
+ */
+public class DawgBuilder {
+
+    private static final int MAX_WORD_LENGTH = 256;
+
+    // frozen states: the edges of state s are [firstEdge[s], firstEdge[s+1])
+    private int[] firstEdge = new int[1024];
+    private boolean[] terminal = new boolean[1024];
+    private int stateCount;
+    private char[] edgeLetters = new char[4096];
+    private int[] edgeTargets = new int[4096];
+    private int edgeCount;
+
+    // the register: ids of frozen states, plus one, so that zero marks an empty slot
+    private int[] register = new int[1024];
+
+    // the open states along the last word; the last edge of each leads to the next
+    private final char[][] openLetters = new char[MAX_WORD_LENGTH + 1][];
+    private final int[][] openTargets = new int[MAX_WORD_LENGTH + 1][];
+    private final int[] openEdgeCount = new int[MAX_WORD_LENGTH + 1];
+    private final boolean[] openTerminal = new boolean[MAX_WORD_LENGTH + 1];
+
+    private final StringBuilder previous = new StringBuilder();
+    private final boolean quSymbol;
+    private int wordCount;
+    private int root = -1;
+
+    public DawgBuilder() {
+        this(false);
+    }
+
+    /**
+     * @param quSymbol whether to compile each "qu" in the words added as the single letter
+     *                 LetterTree.QU, leaving out any word with a q that is not followed by u
+     */
+    public DawgBuilder(boolean quSymbol) {
+        this.quSymbol = quSymbol;
+        openLetters[0] = new char[32];
+        openTargets[0] = new int[32];
+    }
+
+    /**
+     * Reads a sorted list of words, one word per line, adding all the words.
+     * @param in the word list, as a Reader
+     */
+    public void add(Reader in) throws IOException {
+        BufferedReader inb = new BufferedReader(in);
+        String line;
+        while ((line = inb.readLine()) != null) {
+            add(line);
+        }
+    }
+
+    /**
+     * Adds a word, which must not sort before any word added previously. Duplicates are ignored,
+     * as is the empty word, which a LetterTree cannot represent.
+     * @throws IllegalArgumentException if the word is out of order
+     */
+    public void add(CharSequence word) {
+        if (root >= 0) {
+            throw new IllegalStateException("DAWG is already finished");
+        }
+        if (quSymbol) {
+            word = LetterTree.toQuSymbols(word);
+            if (word == null) {
+                return;
+            }
+        }
+        if (word.length() == 0) {
+            return;
+        }
+        if (word.length() > MAX_WORD_LENGTH) {
+            throw new IllegalArgumentException("word is too long: " + word);
+        }
+        int common = 0;
+        int n = Math.min(word.length(), previous.length());
+        while (common < n && word.charAt(common) == previous.charAt(common)) {
+            ++common;
+        }
+        if (common == word.length() && common == previous.length()) {
+            return;
+        }
+        if (common < previous.length() && (common == word.length() || word.charAt(common) < previous.charAt(common))) {
+            throw new IllegalArgumentException("words are not sorted: \"" + word + "\" follows \"" + previous + '"');
+        }
+        // freeze the part of the previous word that is not shared with this one
+        freezeBelow(common);
+        for (int depth = common; depth < word.length(); depth++) {
+            addOpenEdge(depth, word.charAt(depth));
+        }
+        openTerminal[word.length()] = true;
+        previous.setLength(common);
+        previous.append(word, common, word.length());
+        ++wordCount;
+    }
+
+    /**
+     * Freezes all the remaining open states. No more words may be added after this.
+     */
+    public void finish() {
+        if (root < 0) {
+            freezeBelow(0);
+            root = freeze(0);
+        }
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public boolean hasQuSymbol() {
+        return quSymbol;
+    }
+
+    /**
+     * @return the number of states in the finished automaton
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * @return the number of edges (transitions) in the finished automaton
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    int getRoot() {
+        finish();
+        return root;
+    }
+
+    int getFirstEdge(int state) {
+        return firstEdge[state];
+    }
+
+    int getEdgeEnd(int state) {
+        return firstEdge[state + 1];
+    }
+
+    char getEdgeLetter(int edge) {
+        return edgeLetters[edge];
+    }
+
+    int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    boolean isTerminal(int state) {
+        return terminal[state];
+    }
+
+    boolean hasEdges(int state) {
+        return firstEdge[state + 1] > firstEdge[state];
+    }
+
+    /**
+     * Starts a new open state at depth + 1, reached from the open state at depth by letter.
+     */
+    private void addOpenEdge(int depth, char letter) {
+        int n = openEdgeCount[depth];
+        if (n == openLetters[depth].length) {
+            openLetters[depth] = Arrays.copyOf(openLetters[depth], n * 2);
+            openTargets[depth] = Arrays.copyOf(openTargets[depth], n * 2);
+        }
+        openLetters[depth][n] = letter;
+        openTargets[depth][n] = -1;
+        openEdgeCount[depth] = n + 1;
+        int child = depth + 1;
+        if (openLetters[child] == null) {
+            openLetters[child] = new char[4];
+            openTargets[child] = new int[4];
+        }
+        openEdgeCount[child] = 0;
+        openTerminal[child] = false;
+    }
+
+    /**
+     * Freezes the open states deeper than depth, deepest first, and points their parents at the
+     * resulting frozen states.
+     */
+    private void freezeBelow(int depth) {
+        for (int d = previous.length(); d > depth; d--) {
+            openTargets[d - 1][openEdgeCount[d - 1] - 1] = freeze(d);
+        }
+    }
+
+    /**
+     * @return the id of a frozen state equivalent to the open state at the given depth, creating
+     * one if there is none.
+     */
+    private int freeze(int depth) {
+        char[] letters = openLetters[depth];
+        int[] targets = openTargets[depth];
+        int n = openEdgeCount[depth];
+        boolean isTerminal = openTerminal[depth];
+        int mask = register.length - 1;
+        int slot = hash(letters, targets, 0, n, isTerminal) & mask;
+        while (register[slot] != 0) {
+            int state = register[slot] - 1;
+            if (isEquivalent(state, letters, targets, n, isTerminal)) {
+                return state;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int state = addState(letters, targets, n, isTerminal);
+        register[slot] = state + 1;
+        if (stateCount * 2 > register.length) {
+            rehash();
+        }
+        return state;
+    }
+
+    private boolean isEquivalent(int state, char[] letters, int[] targets, int n, boolean isTerminal) {
+        if (terminal[state] != isTerminal || firstEdge[state + 1] - firstEdge[state] != n) {
+            return false;
+        }
+        for (int i = 0, e = firstEdge[state]; i < n; i++, e++) {
+            if (edgeLetters[e] != letters[i] || edgeTargets[e] != targets[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addState(char[] letters, int[] targets, int n, boolean isTerminal) {
+        if (stateCount + 2 > firstEdge.length) {
+            firstEdge = Arrays.copyOf(firstEdge, firstEdge.length * 2);
+            terminal = Arrays.copyOf(terminal, terminal.length * 2);
+        }
+        if (edgeCount + n > edgeLetters.length) {
+            int size = Math.max(edgeLetters.length * 2, edgeCount + n);
+            edgeLetters = Arrays.copyOf(edgeLetters, size);
+            edgeTargets = Arrays.copyOf(edgeTargets, size);
+        }
+        System.arraycopy(letters, 0, edgeLetters, edgeCount, n);
+        System.arraycopy(targets, 0, edgeTargets, edgeCount, n);
+        int state = stateCount++;
+        firstEdge[state] = edgeCount;
+        edgeCount += n;
+        firstEdge[stateCount] = edgeCount;
+        terminal[state] = isTerminal;
+        return state;
+    }
+
+    private void rehash() {
+        int[] old = register;
+        register = new int[old.length * 2];
+        int mask = register.length - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int slot = stateHash(entry - 1) & mask;
+                while (register[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                register[slot] = entry;
+            }
+        }
+    }
+
+    private int stateHash(int state) {
+        return hash(edgeLetters, edgeTargets, firstEdge[state], firstEdge[state + 1], terminal[state]);
+    }
+
+    /**
+     * @return the hash of a state with the edges [from, to) of the given arrays
+     */
+    private static int hash(char[] letters, int[] targets, int from, int to, boolean isTerminal) {
+        int hash = isTerminal ? 1 : 0;
+        for (int i = from; i < to; i++) {
+            hash = hashEdge(hash, letters[i], targets[i]);
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Adds an edge to the hash of a state, or of a DynamicLetterTrie node.
+     */
+    static int hashEdge(int hash, char letter, int target) {
+        return 31 * (31 * hash + letter) + target;
+    }
+
+    /**
+     * Finishes a hash of edges: spreads the bits, since consecutive ids would otherwise fill
+     * consecutive slots of a hash table.
+     */
+    static int spread(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DawgBuilder<%d words, %d states, %d edges>", wordCount, stateCount, edgeCount);
+    }
+}
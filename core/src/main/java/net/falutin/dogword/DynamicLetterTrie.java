@@ -0,0 +1,228 @@
+package net.falutin.dogword;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Created by sokolov on 3/1/2015.
+ *
+ * A letter trie that supports incremental updating; used as a temporary structure while
+ * creating a LetterTree.
+ */
+public class DynamicLetterTrie {
+
+    Node root = new Node();
+    private final boolean quSymbol;
+    // the number of nodes once collapsed, or -1 if the suffixes have not been collapsed
+    private int collapsedCount = -1;
+
+    public DynamicLetterTrie() {
+        this(false);
+    }
+
+    /**
+     * @param quSymbol whether to store each "qu" in the words added as the single letter
+     *                 LetterTree.QU, leaving out any word with a q that is not followed by u
+     */
+    public DynamicLetterTrie(boolean quSymbol) {
+        this.quSymbol = quSymbol;
+    }
+
+    /**
+     * Reads a list of words, expecting one word per line, adding all the words to the tree.
+     * @param in the word list, as a Reader
+     */
+    public void add(Reader in) throws IOException {
+        BufferedReader inb = new BufferedReader(in);
+        String line;
+        while ((line = inb.readLine()) != null) {
+            add(line);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the suffixes have been collapsed, so that the nodes are
+     * shared between words
+     */
+    public void add(String word) {
+        if (collapsedCount >= 0) {
+            throw new IllegalStateException("trie is already collapsed");
+        }
+        if (quSymbol) {
+            word = LetterTree.toQuSymbols(word);
+            if (word == null) {
+                return;
+            }
+        }
+        root.add(word);
+    }
+
+    public boolean hasQuSymbol() {
+        return quSymbol;
+    }
+
+    public Node getRoot () {
+        return root;
+    }
+
+    /**
+     * Converts the tree into a minimal DAG by merging equivalent nodes: those that have the same
+     * terminal flag and the same edges, leading to the same (already merged) nodes. Nodes are
+     * merged bottom-up, so that nodes whose subtrees are equal end up identical, whether they
+     * hold one word or many. No words may be added afterwards; calling this again does nothing.
+     * @return the number of nodes in the resulting DAG; the nodes are numbered by their id
+     */
+    public int collapseSuffixes () {
+        if (collapsedCount < 0) {
+            Register register = new Register();
+            root = root.minimize(register);
+            collapsedCount = register.count;
+        }
+        return collapsedCount;
+    }
+
+    public static class Node {
+        int id;
+        TreeMap<Character, Node> children;
+        boolean isTerminal;
+
+        Node() {
+            id = -1;
+            children = new TreeMap<>();
+            isTerminal = false;
+        }
+
+        public void add(String s) {
+            Node node = this;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.isTerminal = true;
+        }
+
+        /**
+         * Replaces each child by its canonical equivalent, and then looks up this node's own.
+         * @return the canonical node equivalent to this one, which may be this node
+         */
+        private Node minimize(Register register) {
+            if (register.isCanonical(this)) {
+                // reached again through a node that was merged earlier
+                return this;
+            }
+            for (Map.Entry<Character, Node> child : children.entrySet()) {
+                Node canonical = child.getValue().minimize(register);
+                if (canonical != child.getValue()) {
+                    child.setValue(canonical);
+                }
+            }
+            return register.intern(this);
+        }
+
+/*
+        public String toString() {
+            StringBuilder b = new StringBuilder();
+            toString (b, 0);
+            return b.toString();
+        }
+
+        private void toString(StringBuilder b, int indent) {
+            for (Map.Entry<Character,Node> entry : children.entrySet()) {
+                for (int i = 0; i < indent; i++) {
+                    b.append(' ');
+                }
+                b.append(entry.getKey()).append('\n');
+                entry.getValue().toString(b, indent+1);
+            }
+        }
+*/
+    }
+
+    /**
+     * The set of canonical nodes, indexed by id and by structure. A node's structure is hashed from
+     * its terminal flag and its edges' letters and child ids, which are canonical, so equivalent
+     * nodes are found without building any key objects.
+     */
+    private static class Register {
+
+        private Node[] nodes = new Node[1024];
+        private int count;
+        // ids of canonical nodes, plus one, so that zero marks an empty slot
+        private int[] table = new int[2048];
+
+        boolean isCanonical(Node node) {
+            return node.id >= 0 && node.id < count && nodes[node.id] == node;
+        }
+
+        /**
+         * @return the canonical node equivalent to the given node, which becomes canonical if
+         * there is none. Its children must already be canonical.
+         */
+        Node intern(Node node) {
+            int mask = table.length - 1;
+            int slot = hash(node) & mask;
+            while (table[slot] != 0) {
+                Node other = nodes[table[slot] - 1];
+                if (isEquivalent(node, other)) {
+                    return other;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (count == nodes.length) {
+                nodes = Arrays.copyOf(nodes, count * 2);
+            }
+            node.id = count;
+            nodes[count++] = node;
+            table[slot] = count;
+            if (count * 2 > table.length) {
+                rehash();
+            }
+            return node;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int id = 0; id < count; id++) {
+                int slot = hash(nodes[id]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id + 1;
+            }
+        }
+
+        private static int hash(Node node) {
+            int hash = node.isTerminal ? 1 : 0;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                hash = DawgBuilder.hashEdge(hash, child.getKey(), child.getValue().id);
+            }
+            return DawgBuilder.spread(hash);
+        }
+
+        private static boolean isEquivalent(Node a, Node b) {
+            if (a.isTerminal != b.isTerminal || a.children.size() != b.children.size()) {
+                return false;
+            }
+            Iterator<Map.Entry<Character, Node>> bChildren = b.children.entrySet().iterator();
+            for (Map.Entry<Character, Node> aChild : a.children.entrySet()) {
+                Map.Entry<Character, Node> bChild = bChildren.next();
+                if (aChild.getKey().charValue() != bChild.getKey().charValue() || aChild.getValue() != bChild.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package net.falutin.dogword;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The state of a game in progress, saved as a few dozen bytes: the board, which of its words have
+ * been found, the score and the time played. Found words are a bit for each word of the board's
+ * solution, in the order of Solution.getWords(), so restoring them needs no strings at all.
+ *
+ * The bytes are a version number, the board width and height, the letters row by row, a game-over
+ * flag, the score and elapsed seconds as ints, the number of words as an unsigned short, and then
+ * the found bits, eight to a byte, starting from the low bit of the first byte.
+ */
+public class GameSnapshot {
+
+    private static final int VERSION = 1;
+
+    public final int width, height;
+    /** the letters of the board, row by row, as accepted by CellGrid.setCells() */
+    public final String letters;
+    /** the number of words on the board */
+    public final int wordCount;
+    /** the words found, as returned by GridWords.getFoundBits() */
+    public final long[] found;
+    public final int score;
+    public final int elapsedSeconds;
+    public final boolean gameOver;
+
+    public GameSnapshot(Char2d grid, int wordCount, long[] found, int score, int elapsedSeconds,
+                        boolean gameOver) {
+        if (wordCount > 0xffff || found.length != (wordCount + 63) >> 6) {
+            throw new IllegalArgumentException(found.length + " words of bits for " + wordCount + " words");
+        }
+        width = grid.width();
+        height = grid.height();
+        char[] cells = new char[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                cells[row * width + col] = grid.get(row, col);
+            }
+        }
+        letters = new String(cells);
+        this.wordCount = wordCount;
+        this.found = found;
+        this.score = score;
+        this.elapsedSeconds = elapsedSeconds;
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * @return a new grid holding the board's letters
+     */
+    public CellGrid getGrid() {
+        CellGrid grid = new CellGrid(width, height);
+        grid.setCells(letters);
+        return grid;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + letters.length() + (wordCount + 7) / 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeByte(width);
+            out.writeByte(height);
+            for (int i = 0; i < letters.length(); i++) {
+                out.writeByte(letters.charAt(i));
+            }
+            out.writeBoolean(gameOver);
+            out.writeInt(score);
+            out.writeInt(elapsedSeconds);
+            out.writeShort(wordCount);
+            for (int i = 0; i < wordCount; i += 8) {
+                out.writeByte((int) (found[i >> 6] >>> (i & 63)));
+            }
+        } catch (IOException e) {
+            // a ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param bytes a snapshot, as returned by toBytes()
+     * @throws IOException if the bytes are not a snapshot
+     */
+    public static GameSnapshot fromBytes(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readUnsignedByte() != VERSION) {
+            throw new IOException("unknown game snapshot version");
+        }
+        int width = in.readUnsignedByte();
+        int height = in.readUnsignedByte();
+        if (width == 0 || height == 0 || width * height > GridWordFinder.MAX_CELLS) {
+            throw new IOException("invalid game snapshot");
+        }
+        CellGrid grid = new CellGrid(width, height);
+        char[] cells = new char[width * height];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (char) in.readUnsignedByte();
+        }
+        grid.setCells(new String(cells));
+        boolean gameOver = in.readBoolean();
+        int score = in.readInt();
+        int elapsedSeconds = in.readInt();
+        int wordCount = in.readUnsignedShort();
+        long[] found = new long[(wordCount + 63) >> 6];
+        for (int i = 0; i < wordCount; i += 8) {
+            found[i >> 6] |= (long) in.readUnsignedByte() << (i & 63);
+        }
+        return new GameSnapshot(grid, wordCount, found, score, elapsedSeconds, gameOver);
+    }
+}
@@ -0,0 +1,396 @@
+package net.falutin.dogword;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Finds all words on a grid. A wildcard cell (Char2d.WILDCARD) stands for any letter.
+ */
+public class GridWordFinder {
+
+    /** the largest number of cells in a grid; visited cells are tracked with the bits of a long */
+    public static final int MAX_CELLS = 64;
+
+    private final LetterTree tree;
+    private final int minLength;
+    // the neighbours of each cell, for the size of the last grid searched; a finder is usually
+    // given grids of a single size, so this is computed once, and read without locking
+    private volatile Adjacency adjacency;
+
+    /**
+     * Receives the words found on a grid by findWords(Char2d, WordVisitor).
+     */
+    public interface WordVisitor {
+        /**
+         * Called once for every path that spells a word, so a word that can be traced in more
+         * than one way is reported more than once.
+         * @param ordinal the word's ordinal in the dictionary; see LetterTree.getWord()
+         * @param length the number of letters in the word
+         * @param path the indexes (row * width + col) of the cells that spell the word. The array
+         *             is reused, and its contents are only valid for the duration of the call.
+         * @param pathLength the number of cells in the path
+         */
+        void visitWord(int ordinal, int length, byte[] path, int pathLength);
+    }
+
+    public GridWordFinder (LetterTree tree) {
+        this (tree, 3);
+    }
+
+    public GridWordFinder (LetterTree tree, int minLength) {
+        this.tree = tree;
+        this.minLength = minLength;
+    }
+
+    /**
+     * Words score according to the Fibonacci sequence: a word of length n scores fibonacci(n - 2).
+     */
+    public static int fibonacci(int n) {
+        int sum1 = 1, sum2 = 0;
+        while (n-- > 0) {
+            int tmp = sum1;
+            sum1 += sum2;
+            sum2 = tmp;
+        }
+        return sum1;
+    }
+
+    /**
+     * Scores a word: fibonacci(length - 2), multiplied by one more than the word's payload in the
+     * dictionary, which grades words by rarity, from 0 for common words. Without a payload, this is
+     * just the Fibonacci score.
+     * @param ordinal the word's ordinal in the dictionary
+     * @param length the number of letters in the word
+     */
+    public int score(int ordinal, int length) {
+        return fibonacci(length - 2) * (1 + tree.getPayload(ordinal));
+    }
+
+    /**
+     * @return the score of the word, or zero if it is not in the dictionary
+     */
+    public int score(CharSequence word) {
+        int ordinal = tree.getOrdinal(word);
+        return ordinal < 0 ? 0 : score(ordinal, word.length());
+    }
+
+    public LetterTree getTree() {
+        return tree;
+    }
+
+    public int computeMaxScore (Char2d grid) {
+        ScoringVisitor scorer = new ScoringVisitor();
+        findWords(grid, scorer);
+        return scorer.score;
+    }
+
+    /**
+     * Solves the grid: finds its words, in a single search, and totals their scores. For grids of
+     * up to Solution.MAX_PATH_CELLS cells, the solution also records the first path found for
+     * each word.
+     */
+    public Solution solve (Char2d grid) {
+        boolean recordPaths = grid.width() * grid.height() <= Solution.MAX_PATH_CELLS;
+        ScoringVisitor scorer = recordPaths ? new PathVisitor() : new ScoringVisitor();
+        findWords(grid, scorer);
+        // word ordinals follow alphabetical order, so iterating over the set yields sorted words
+        String[] words = new String[scorer.count];
+        int i = 0;
+        for (int ordinal = scorer.found.nextSetBit(0); ordinal >= 0; ordinal = scorer.found.nextSetBit(ordinal + 1)) {
+            words[i++] = tree.getWord(ordinal).toUpperCase();
+        }
+        if (!recordPaths) {
+            return new Solution(words, scorer.score);
+        }
+        // order the paths as the words are, by ordinal, rather than as they were found
+        PathVisitor pathVisitor = (PathVisitor) scorer;
+        long[] order = new long[scorer.count];
+        for (i = 0; i < order.length; i++) {
+            order[i] = ((long) pathVisitor.ordinals[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        long[] paths = new long[order.length];
+        byte[] pathLengths = new byte[order.length];
+        for (i = 0; i < order.length; i++) {
+            int found = (int) order[i];
+            paths[i] = pathVisitor.paths[found];
+            pathLengths[i] = pathVisitor.pathLengths[found];
+        }
+        return new Solution(words, scorer.score, paths, pathLengths);
+    }
+
+    public Set<String> findWords (Char2d grid) {
+        StringVisitor collector = new StringVisitor(tree);
+        findWords(grid, collector);
+        return collector.words;
+    }
+
+    /**
+     * Finds the distinct words on the grid, without creating any Strings.
+     * @param found a set of word ordinals; the ordinals of the words on the grid are added to it,
+     *              so iterating over it lists the words in sorted order.
+     * @return the number of words that were added to found
+     */
+    public int findWordOrdinals (Char2d grid, BitSet found) {
+        OrdinalVisitor collector = new OrdinalVisitor(found);
+        findWords(grid, collector);
+        return collector.count;
+    }
+
+    /**
+     * Reports every path on the grid that spells a word of at least the minimum length.
+     */
+    public void findWords (Char2d grid, WordVisitor visitor) {
+        int width = grid.width(), height = grid.height();
+        int size = width * height;
+        if (size > MAX_CELLS) {
+            throw new IllegalArgumentException("grid has more than " + MAX_CELLS + " cells: " + width + "x" + height);
+        }
+        byte[] letters = new byte[size];
+        int[] letterBits = new int[size];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int cell = row * width + col;
+                letters[cell] = (byte) Character.toLowerCase(grid.get(row, col));
+                // a wildcard matches every letter in a letter mask
+                letterBits[cell] = letters[cell] == Char2d.WILDCARD ? -1 : LetterTree.letterBit(letters[cell]);
+            }
+        }
+        Search search = new Search(visitor, letters, letterBits, getNeighbours(width, height));
+        for (int cell = 0; cell < size; cell++) {
+            search.findWords(cell, 0, 0, 0, LetterTree.ROOT);
+        }
+    }
+
+    /**
+     * @return for each cell (row * width + col) of a grid of the given size, the indexes of the
+     * cells adjacent to it, including diagonally. The table is only recomputed when the size
+     * changes; threads sharing the finder may each compute it once, which is harmless.
+     */
+    byte[][] getNeighbours(int width, int height) {
+        Adjacency current = adjacency;
+        if (current == null || current.width != width || current.height != height) {
+            current = new Adjacency(width, height);
+            adjacency = current;
+        }
+        return current.neighbours;
+    }
+
+    /**
+     * The neighbours of each cell of a grid of one size.
+     */
+    private static class Adjacency {
+        final int width, height;
+        final byte[][] neighbours;
+
+        Adjacency(int width, int height) {
+            this.width = width;
+            this.height = height;
+            neighbours = new byte[width * height][];
+            byte[] buf = new byte[8];
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    int n = 0;
+                    for (int rr = Math.max(row - 1, 0); rr <= Math.min(row + 1, height - 1); rr++) {
+                        for (int cc = Math.max(col - 1, 0); cc <= Math.min(col + 1, width - 1); cc++) {
+                            if (rr != row || cc != col) {
+                                buf[n++] = (byte) (rr * width + cc);
+                            }
+                        }
+                    }
+                    neighbours[row * width + col] = Arrays.copyOf(buf, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a single search over one grid.
+     */
+    private class Search {
+        private final WordVisitor visitor;
+        private final byte[] letters;
+        // the letterBit() of each cell's letter, and of all of them together
+        private final int[] letterBits;
+        private final int boardMask;
+        private final byte[][] neighbours;
+        private final byte[] path;
+        // for each path length, the letters that may follow the prefix at a wildcard, and the
+        // states they lead to; allocated as wildcards are reached
+        private final byte[][] wildLetters;
+        private final long[][] wildStates;
+
+        Search(WordVisitor visitor, byte[] letters, int[] letterBits, byte[][] neighbours) {
+            this.visitor = visitor;
+            this.letters = letters;
+            this.letterBits = letterBits;
+            this.neighbours = neighbours;
+            int mask = 0;
+            for (int bit : letterBits) {
+                mask |= bit;
+            }
+            boardMask = mask;
+            path = new byte[letters.length];
+            wildLetters = new byte[letters.length][];
+            wildStates = new long[letters.length][];
+        }
+
+        /**
+         * Extends the prefix spelled by path by the letter in cell and reports any words found
+         * by continuing from there.
+         * @param visited a bitmask of the cells in path
+         * @param length the number of letters in the prefix; this exceeds pathLength when the path
+         *               crosses a Q, which stands for QU
+         * @param state the dictionary state of the prefix, so that each cell costs a single step
+         *              rather than a lookup of the whole prefix
+         */
+        void findWords(int cell, long visited, int pathLength, int length, long state) {
+            byte letter = letters[cell];
+            if (letter == Char2d.WILDCARD) {
+                findWildcardWords(cell, visited, pathLength, length, state);
+                return;
+            }
+            if (letter == LetterTree.QU) {
+                // a single step in a tree with QU symbols
+                state = tree.stepTile(state, letter);
+                length += 2;
+            } else {
+                state = tree.step(state, letter);
+                length += 1;
+            }
+            if (state == 0) {
+                return;
+            }
+            extend(cell, visited, pathLength, length, state);
+        }
+
+        /**
+         * Extends the prefix spelled by path by each of the letters that may follow it, in turn,
+         * from a single pass over the prefix's node.
+         */
+        private void findWildcardWords(int cell, long visited, int pathLength, int length, long state) {
+            if (wildLetters[pathLength] == null) {
+                wildLetters[pathLength] = new byte[256];
+                wildStates[pathLength] = new long[256];
+            }
+            byte[] childLetters = wildLetters[pathLength];
+            long[] childStates = wildStates[pathLength];
+            int n = tree.getChildren(state, childLetters, childStates);
+            for (int i = 0; i < n; i++) {
+                // a wildcard standing for a QU symbol spells two letters
+                int letterCount = childLetters[i] == LetterTree.QU && tree.hasQuSymbol() ? 2 : 1;
+                extend(cell, visited, pathLength, length + letterCount, childStates[i]);
+            }
+        }
+
+        /**
+         * Adds cell to the path, whose prefix has been extended by the cell's letter, reports the
+         * prefix if it is a word, and continues to the cell's neighbours.
+         */
+        private void extend(int cell, long visited, int pathLength, int length, long state) {
+            visited |= 1L << cell;
+            path[pathLength++] = (byte) cell;
+            if (length >= minLength && (state & LetterTree.IS_WORD) != 0) {
+                visitor.visitWord(LetterTree.ordinal(state), length, path, pathLength);
+            }
+            // visit only the neighbours whose letters can follow the prefix, and none at all when
+            // no such letter is on the board
+            int mask = tree.getLetterMask(state) & boardMask;
+            if (mask != 0) {
+                for (byte next : neighbours[cell]) {
+                    if ((visited & (1L << next)) == 0 && (letterBits[next] & mask) != 0) {
+                        findWords(next, visited, pathLength, length, state);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records each distinct word once in a bitset.
+     */
+    private static class OrdinalVisitor implements WordVisitor {
+        private final BitSet found;
+        private int count;
+
+        OrdinalVisitor(BitSet found) {
+            this.found = found;
+        }
+
+        @Override
+        public void visitWord(int ordinal, int length, byte[] path, int pathLength) {
+            if (!found.get(ordinal)) {
+                found.set(ordinal);
+                ++count;
+            }
+        }
+    }
+
+    /**
+     * Collects each distinct word once, as a String, in the order they are found.
+     */
+    private static class StringVisitor implements WordVisitor {
+        private final LetterTree tree;
+        private final BitSet found;
+        private final Set<String> words = new LinkedHashSet<>();
+
+        StringVisitor(LetterTree tree) {
+            this.tree = tree;
+            found = new BitSet(tree.getWordCount());
+        }
+
+        @Override
+        public void visitWord(int ordinal, int length, byte[] path, int pathLength) {
+            if (!found.get(ordinal)) {
+                found.set(ordinal);
+                words.add(tree.getWord(ordinal));
+            }
+        }
+    }
+
+    /**
+     * Totals the score of each distinct word.
+     */
+    private class ScoringVisitor implements WordVisitor {
+        final BitSet found = new BitSet(tree.getWordCount());
+        int count;
+        int score;
+
+        @Override
+        public void visitWord(int ordinal, int length, byte[] path, int pathLength) {
+            if (!found.get(ordinal)) {
+                found.set(ordinal);
+                ++count;
+                score += score(ordinal, length);
+                visitNewWord(ordinal, path, pathLength);
+            }
+        }
+
+        void visitNewWord(int ordinal, byte[] path, int pathLength) {
+        }
+    }
+
+    /**
+     * Totals the score of each distinct word, and records the first path that spells it, in the
+     * order in which the words are found.
+     */
+    private class PathVisitor extends ScoringVisitor {
+        int[] ordinals = new int[64];
+        long[] paths = new long[64];
+        byte[] pathLengths = new byte[64];
+
+        @Override
+        void visitNewWord(int ordinal, byte[] path, int pathLength) {
+            if (count > ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+                paths = Arrays.copyOf(paths, paths.length * 2);
+                pathLengths = Arrays.copyOf(pathLengths, pathLengths.length * 2);
+            }
+            ordinals[count - 1] = ordinal;
+            paths[count - 1] = Solution.encodePath(path, pathLength);
+            pathLengths[count - 1] = (byte) pathLength;
+        }
+    }
+
+}
@@ -0,0 +1,410 @@
+package net.falutin.dogword;
+
+import java.util.Arrays;
+
+/**
+ * The words on a board, which of them have been found, and the list of them shown to the player.
+ *
+ * The list is kept as one text segment per word slot, plus one for the end of the list, so that
+ * finding a word re-renders only the slots of the run of found words that it joins: a handful of
+ * segments, however long the list. The segments are never concatenated here; getWordList() reads
+ * through them, using a Fenwick tree of their lengths to locate each character.
+ */
+public class GridWords {
+
+    private static final String COMMA = ", ";
+    //private static final String ELLIPSIS = ", …,";
+    private static final String ELLIPSIS = " · ";
+
+    private final Solution solution;
+    private final String[] words;
+    // a bit for each word, set if it has been found
+    private final long[] found;
+    private int numFound;
+    // the unfound slots, as a doubly linked list; slot words.length is the end of the list, and
+    // -1 the start
+    private final int[] nextUnfound;
+    private final int[] prevUnfound;
+
+    // the rendering, for the style and run length it was rendered with
+    private HintStyle hintStyle;
+    private int runLength;
+    private final String[] segments;
+    private final int[] segmentLengths;
+    private final CharSequence wordList = new WordList();
+
+    public GridWords(GridWordFinder finder, CellGrid grid) {
+        this(finder.solve(grid));
+    }
+
+    public GridWords(Solution solution) {
+        this.solution = solution;
+        words = solution.getWords();
+        int n = words.length;
+        found = new long[(n + 63) >> 6];
+        nextUnfound = new int[n + 1];
+        prevUnfound = new int[n + 1];
+        linkUnfound();
+        segments = new String[n + 1];
+        // one-based, as a Fenwick tree
+        segmentLengths = new int[n + 2];
+    }
+
+    GridWords(String[] words) {
+        this(new Solution(words, 0));
+    }
+
+    /**
+     * @return the solution of the board: all its words and its maximum score
+     */
+    public Solution getSolution() {
+        return solution;
+    }
+
+    /**
+     * Marks words as found; words that are not on the board are ignored.
+     */
+    public void addFoundWords(String[] wf) {
+        for (String word : wf) {
+            addFound(word);
+        }
+    }
+
+    public String[] getWordsFound() {
+        String[] wordsFound = new String[numFound];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (isFound(i)) {
+                wordsFound[n++] = words[i];
+            }
+        }
+        return wordsFound;
+    }
+
+    public int getNumFound() {
+        return numFound;
+    }
+
+    public boolean isFound(String word) {
+        int i = solution.indexOf(word);
+        return i >= 0 && isFound(i);
+    }
+
+    /**
+     * @param i a word's position in the solution
+     */
+    public boolean isFound(int i) {
+        return (found[i >> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Marks a word as found, if it is on the board, and updates the list of words in place.
+     */
+    public void addFound(String word) {
+        int i = solution.indexOf(word);
+        if (i >= 0) {
+            addFound(i);
+        }
+    }
+
+    /**
+     * Marks a word as found, and updates the list of words in place.
+     * @param i the word's position in the solution
+     */
+    public void addFound(int i) {
+        if (isFound(i)) {
+            return;
+        }
+        found[i >> 6] |= 1L << i;
+        ++numFound;
+        int runStart = prevUnfound[i] + 1;
+        int runEnd = nextUnfound[i];
+        unlink(i);
+        if (hintStyle != null) {
+            updateRun(i, runStart, runEnd);
+        }
+    }
+
+    /**
+     * @return a bit for each word in the solution, set if the word has been found; bit i is bit
+     * (i % 64) of element i / 64
+     */
+    public long[] getFoundBits() {
+        return found.clone();
+    }
+
+    /**
+     * Replaces the words found with those whose bits are set, as returned by getFoundBits().
+     */
+    public void setFoundBits(long[] bits) {
+        if (bits.length != found.length) {
+            throw new IllegalArgumentException(bits.length + " words of bits for " + words.length + " words");
+        }
+        System.arraycopy(bits, 0, found, 0, found.length);
+        if (words.length % 64 != 0) {
+            found[found.length - 1] &= (1L << words.length) - 1;
+        }
+        numFound = 0;
+        for (long word : found) {
+            numFound += Long.bitCount(word);
+        }
+        linkUnfound();
+        // the list is rendered from scratch when next formatted
+        hintStyle = null;
+    }
+
+    private void linkUnfound() {
+        int last = -1;
+        for (int i = 0; i < words.length; i++) {
+            if (!isFound(i)) {
+                prevUnfound[i] = last;
+                if (last >= 0) {
+                    nextUnfound[last] = i;
+                }
+                last = i;
+            }
+        }
+        prevUnfound[words.length] = last;
+        if (last >= 0) {
+            nextUnfound[last] = words.length;
+        }
+    }
+
+    private void unlink(int i) {
+        if (prevUnfound[i] >= 0) {
+            nextUnfound[prevUnfound[i]] = nextUnfound[i];
+        }
+        prevUnfound[nextUnfound[i]] = prevUnfound[i];
+    }
+
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * @return the cells (row * width + col) of a path that spells the word on the board, in
+     * order, or null if the word is not on the board or its paths were not recorded
+     */
+    public byte[] getPath(String word) {
+        int i = solution.indexOf(word);
+        if (i < 0 || !solution.hasPaths()) {
+            return null;
+        }
+        long packed = solution.getPath(i);
+        byte[] path = new byte[solution.getPathLength(i)];
+        for (int j = 0; j < path.length; j++) {
+            path[j] = (byte) Solution.getCell(packed, j);
+        }
+        return path;
+    }
+
+    // return a string listing all the words in alphabetical order, with unfound words represented
+    // according to the hint style; runs of more than 2 * len found words are collapsed to their
+    // first and last len words.
+    public String formatWordList(HintStyle hintStyle, int len) {
+        return getWordList(hintStyle, len).toString();
+    }
+
+    /**
+     * As formatWordList(), but without copying the list: the result reads the rendered segments in
+     * place, and follows the words found later, until the style or run length changes. A view
+     * such as a TextView takes its own copy when given it.
+     */
+    public CharSequence getWordList(HintStyle hintStyle, int len) {
+        if (hintStyle != this.hintStyle || len != runLength) {
+            this.hintStyle = hintStyle;
+            runLength = len;
+            renderAll();
+        }
+        return wordList;
+    }
+
+    private void renderAll() {
+        Arrays.fill(segmentLengths, 0);
+        int runStart = 0;
+        boolean nonEmpty = false;
+        for (int i = 0; i <= words.length; i++) {
+            String segment = render(i, runStart, nonEmpty);
+            segments[i] = segment;
+            addLength(i, segment.length());
+            nonEmpty |= !segment.isEmpty();
+            if (i < words.length && !isFound(i)) {
+                runStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Re-renders the slots affected by finding word i, which has joined the unfound runs
+     * [runStart, i) and (i, runEnd) into one found run ending before slot runEnd.
+     */
+    private void updateRun(int i, int runStart, int runEnd) {
+        // whether the list was empty up to and including the end of the run; this happens when
+        // the words before it are all unfound and not shown at all
+        boolean leadingEmpty = offset(runEnd + 1) == 0;
+        boolean nonEmpty = offset(i) > 0;
+        // the slots up to i are unchanged, as are those more than runLength past it, which remain
+        // collapsed
+        int last = Math.min(runEnd - 1, i + runLength);
+        for (int j = i; j <= last; j++) {
+            nonEmpty |= setSegment(j, render(j, runStart, nonEmpty));
+        }
+        nonEmpty |= setSegment(runEnd, render(runEnd, runStart, nonEmpty));
+        if (leadingEmpty) {
+            // the slots after the run were rendered as if the list were empty before them, up to
+            // and including the first that shows something
+            int start = runEnd + 1;
+            for (int j = start; j <= words.length; j++) {
+                boolean shown = !segments[j].isEmpty();
+                nonEmpty |= setSegment(j, render(j, start, nonEmpty));
+                if (shown) {
+                    break;
+                }
+                // a slot that showed nothing was an unfound word
+                start = j + 1;
+            }
+        }
+    }
+
+    /**
+     * @param i a word slot, or words.length for the end of the list
+     * @param runStart the first slot of the run of found words that includes or precedes slot i
+     * @param nonEmpty whether any slot before i shows anything
+     * @return the text of slot i
+     */
+    private String render(int i, int runStart, boolean nonEmpty) {
+        int len = runLength;
+        if (i == words.length) {
+            return collapsed(i, runStart, len);
+        }
+        boolean collapsing = (i - runStart) >= len;
+        if (isFound(i)) {
+            if (collapsing) {
+                return "";
+            }
+            return nonEmpty ? COMMA + words[i] : words[i];
+        }
+        StringBuilder buf = new StringBuilder();
+        if (nonEmpty && !collapsing) {
+            buf.append(COMMA);
+        }
+        buf.append(collapsed(i, runStart, len));
+        switch (hintStyle) {
+            case RevealWord:
+                buf.append('[').append(words[i]).append(']');
+                break;
+            case Length:
+                buf.append("(").append(words[i].length()).append(")");
+                break;
+            case None:
+        }
+        return buf.toString();
+    }
+
+    // the words at the end of the run [runStart, i) that are shown after the collapsed words
+    private String collapsed(int i, int runStart, int len) {
+        int runLength = i - runStart;
+        if (runLength < len) {
+            return "";
+        }
+        // show the words just before this, if we were collapsing
+        // show up to 3, but don't overlap with words already shown
+        // and include an ellipsis if any words were collapsed
+        StringBuilder buf = new StringBuilder();
+        int gapEndIndex;
+        if (runLength > 2 * len) {
+            buf.append(ELLIPSIS);
+            gapEndIndex = i - len;
+        } else {
+            gapEndIndex = i - runLength + len;
+            buf.append(COMMA);
+        }
+        for (int j = gapEndIndex; j < i; j++) {
+            buf.append(words[j]);
+            if (j < words.length - 1) {
+                buf.append(COMMA);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Replaces the text of a slot.
+     * @return whether the slot shows anything
+     */
+    private boolean setSegment(int i, String segment) {
+        addLength(i, segment.length() - segments[i].length());
+        segments[i] = segment;
+        return !segment.isEmpty();
+    }
+
+    private void addLength(int i, int delta) {
+        for (int j = i + 1; j < segmentLengths.length; j += j & -j) {
+            segmentLengths[j] += delta;
+        }
+    }
+
+    /**
+     * @return the position in the text of slot i: the total length of the slots before it
+     */
+    private int offset(int i) {
+        int total = 0;
+        for (int j = i; j > 0; j -= j & -j) {
+            total += segmentLengths[j];
+        }
+        return total;
+    }
+
+    /**
+     * @return the slot whose text includes the given position, which is less than the length of
+     * the whole text
+     */
+    private int segmentAt(int position) {
+        // descend the Fenwick tree to the last slot that starts at or before the position; slots
+        // that show nothing are passed over
+        int slot = 0;
+        for (int step = Integer.highestOneBit(segmentLengths.length - 1); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next < segmentLengths.length && segmentLengths[next] <= position) {
+                slot = next;
+                position -= segmentLengths[next];
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * The rendered list, read from the segments: each character costs a search of the Fenwick
+     * tree, and only toString() concatenates them.
+     */
+    private class WordList implements CharSequence {
+
+        @Override
+        public int length() {
+            return offset(segments.length);
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+            }
+            int slot = segmentAt(index);
+            return segments[slot].charAt(index - offset(slot));
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(length());
+            for (String segment : segments) {
+                buf.append(segment);
+            }
+            return buf.toString();
+        }
+    }
+}
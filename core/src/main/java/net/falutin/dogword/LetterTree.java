@@ -0,0 +1,1444 @@
+package net.falutin.dogword;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * LetterTree provides fast lookup of word prefixes in a compact data structure. It is essentially
+ * a prefix tree (trie) or DAG, optimized for storing a tree of 1-byte letters in small space with fast
+ * lookup.
+ * Created by sokolov on 3/1/2015.
+ */
+public class LetterTree {
+
+    public final static byte IS_WORD = 1;
+    public final static byte HAS_CHILDREN = 2;
+    /** the state of the empty prefix; see step() */
+    public final static long ROOT = HAS_CHILDREN;
+    private final static int EOL = 0x80000000; // end of list
+    private final static int EOW = 0x40000000; // end of word
+    private final static int NODE_MASK = 0x3ffffff0;
+    private final static int NODE_SHIFT = 8;
+    private final static int MAX_SIBLING_OFFSET = NODE_MASK >>> NODE_SHIFT;
+    private final static int FORMAT_TAG = 0x80000000; // marks a header that names a non-default format
+    private final static int PAYLOAD_TAG = 0x40000000; // in such a header, marks a tree that carries a payload
+    private final static int QU_TAG = 0x20000000; // in such a header, marks a tree compiled with QU symbols
+    private final static int RANKS_TAG = 0x10000000; // in such a header, marks a tree whose ranks follow its edges
+    private final static int ALPHABET_SIZE = 26;
+    private final static int OTHER_LETTER = 1 << 31; // in a letter mask, stands for any letter outside a-z
+
+    /**
+     * The letter of the Q tile, which stands for the pair QU. In a tree compiled with QU symbols
+     * (see hasQuSymbol()), this letter is the whole pair, so a tile is always a single step, and
+     * words with a Q that is not followed by U are left out, since no board can spell them.
+     * Sorting is unchanged, since every Q in such a tree is followed by U.
+     */
+    public final static byte QU = 'q';
+
+    /**
+     * Receives the prefixes of a tree from visit().
+     */
+    public interface Visitor {
+        /**
+         * @param letters the letters of the prefix, as the tree stores them, so that a QU symbol
+         *                is a single letter. The array is reused, and its contents are only valid
+         *                for the duration of the call.
+         * @param length the number of letters in the prefix
+         * @param state the state of the prefix, as step() would return it; the IS_WORD bit is set
+         *              if the prefix is a word, whose ordinal is ordinal(state)
+         * @return whether to visit the continuations of the prefix
+         */
+        boolean visit(byte[] letters, int length, long state);
+    }
+
+    /**
+     * The layouts in which a compiled tree may store its nodes.
+     */
+    public enum Format {
+        /** each node is a sorted list of edges that is scanned linearly; this is the original format */
+        SIBLING_LIST,
+        /** each node is a bitmask of its letters followed by one pointer per letter; lookups
+         * index the pointers directly using a popcount, at the cost of an extra int per node. */
+        BITMAP,
+        /** each node is a sorted list of edges, as in SIBLING_LIST, but the edges are bit-packed,
+         * using only as many bits for the letter and the child offset as the dictionary needs.
+         * This is smaller, and unlike SIBLING_LIST, it can address more than 4M edges. */
+        PACKED
+    }
+
+    /**
+     * The dictionary is encoded as an array of ints, each of which represents an edge in a tree
+     * of nodes. Logically, each node contains the following information:
+     * <ul>
+     *   <li>A boolean indicating whether the node is terminal, marking the end of a word.</li>
+     *   <li>A map of children: letter-> node</li>
+     * </ul>
+     * The tree is encoded using a list of single 32-bit integers as follows:
+     * <ul>
+     *     <li>One byte stores a character</li>
+     *     <li>One bit marks end-of-word</li>
+     *     <li>One bit marks end-of-child-list</li>
+     *     <li>The remaining bits encode an offset to a child node</li>
+     * </ul>
+     * In the BITMAP format, a node is instead stored as an int whose low 26 bits mark which of the
+     * letters a-z have children, followed by one int per letter present, in alphabetical order.
+     * Each of those holds the offset of the child node shifted left by one, with the low bit
+     * marking end-of-word. As with sibling lists, an offset of zero means the child has no
+     * children.
+     * In the PACKED format, the edges are the same as in SIBLING_LIST, but each is packed into
+     * a fixed number of bits of a big-endian bit stream stored in the ints: from the most
+     * significant, the child offset, the end-of-list and end-of-word bits, and the letter's index
+     * in the tree's alphabet. The widths are the fewest that hold the largest offset and the
+     * alphabet; see Packing.
+     *
+     * Words are numbered by their rank in sorted order. Alongside the nodes we keep, for each edge
+     * (or child pointer), the number of words reached through the edges that precede it in the
+     * same node; summing these along a path yields the word's ordinal, which step() carries in
+     * its state.
+     *
+     * The rank of a node's first edge is always zero, so in its place we keep the node's letter
+     * mask: the letters on its edges, so that a search can tell which letters may follow a prefix
+     * without stepping through them; see getLetterMask(). In the BITMAP format, the slot of the
+     * node's bitmap holds the mask, and the first pointer holds its rank of zero.
+     *
+     * A tree may also carry a payload: one byte for each word, indexed by its ordinal, so that
+     * attributes of a word found by step() can be read without any further lookup.
+     *
+     * A tree compiled with QU symbols stores each QU as the single letter QU. Its nodes are laid
+     * out as in any other tree; only the methods that take or return text translate the pair.
+     *
+     * The ranks and masks are computed when the tree is built, and written out with it, after
+     * the edges. Trees that are built or read from a stream keep their edges and ranks in heap
+     * arrays; trees that are mapped from a file leave them in IntBuffer views of the mapped file
+     * and never copy them. Only files written before the ranks were stored have them computed
+     * when they are loaded.
+     * Either way a tree never changes once constructed, and since all its fields are final, it may
+     * be shared freely between threads.
+     */
+    private final int[] nodes;
+    private final IntBuffer buffer;
+    private final int count;
+    private final Format format;
+    private final Packing packing;
+    // for each slot, the rank of its edge, or at the start of a node, the node's letter mask;
+    // in one or the other
+    private final int[] ranks;
+    private final IntBuffer rankBuffer;
+    private final int wordCount;
+    private final byte[] payload;
+    private final boolean quSymbol;
+
+    private LetterTree (int[] nodes, int count, Format format, Packing packing, boolean quSymbol) {
+        this(nodes, null, count, format, packing, quSymbol, null, null, 0);
+    }
+
+    /**
+     * @param nodes the edges, or null if they are in the buffer
+     * @param ranks the ranks, or null if they are in the rank buffer; if neither holds them,
+     *              they are computed, along with the word count
+     */
+    private LetterTree (int[] nodes, IntBuffer buffer, int count, Format format, Packing packing, boolean quSymbol,
+                        int[] ranks, IntBuffer rankBuffer, int wordCount) {
+        this.nodes = nodes;
+        this.buffer = buffer;
+        this.count = count;
+        this.format = format;
+        this.packing = packing;
+        this.payload = null;
+        this.quSymbol = quSymbol;
+        this.rankBuffer = rankBuffer;
+        if (ranks == null && rankBuffer == null) {
+            this.ranks = new int[count];
+            this.wordCount = countWords();
+        } else {
+            this.ranks = ranks;
+            this.wordCount = wordCount;
+        }
+    }
+
+    private LetterTree (LetterTree tree, byte[] payload, boolean quSymbol) {
+        this.nodes = tree.nodes;
+        this.buffer = tree.buffer;
+        this.count = tree.count;
+        this.format = tree.format;
+        this.packing = tree.packing;
+        this.ranks = tree.ranks;
+        this.rankBuffer = tree.rankBuffer;
+        this.wordCount = tree.wordCount;
+        this.payload = payload;
+        this.quSymbol = quSymbol;
+    }
+
+    /**
+     * @param payload one byte for each word, indexed by ordinal
+     * @return a tree with the same words, sharing this tree's nodes, that carries the payload
+     */
+    public LetterTree withPayload (byte[] payload) {
+        if (payload.length != wordCount) {
+            throw new IllegalArgumentException("payload has " + payload.length + " entries for " + wordCount + " words");
+        }
+        return new LetterTree(this, payload, quSymbol);
+    }
+
+    public boolean hasPayload() {
+        return payload != null;
+    }
+
+    /**
+     * @param ordinal a word's ordinal, as returned by ordinal() or getOrdinal()
+     * @return the word's payload, from 0 to 255, or 0 if the tree carries none
+     */
+    public int getPayload (int ordinal) {
+        return payload == null ? 0 : payload[ordinal] & 0xff;
+    }
+
+    /**
+     * @return whether the tree was compiled with QU symbols, so that the letter QU stands for the
+     * pair QU; see DawgBuilder(boolean)
+     */
+    public boolean hasQuSymbol() {
+        return quSymbol;
+    }
+
+    public int getNodeCount() {
+        return count;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the number of words in the tree; word ordinals range from zero up to this
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public boolean contains (CharSequence letters) {
+        return (lookup(letters) & IS_WORD) == 1;
+    }
+
+    /**
+     * @param letters a string of letters to look up
+     * @return a bitmask that is non-zero if the string occurs in the tree, and
+     * has the 1-bit set if if the string is a terminal node (ie a word).
+     */
+    public int lookup(CharSequence letters) {
+        return (int) (stepText(letters) & (IS_WORD | HAS_CHILDREN));
+    }
+
+    /**
+     * @return the ordinal of the word, or -1 if it is not in the tree
+     */
+    public int getOrdinal(CharSequence word) {
+        long state = stepText(word);
+        return (state & IS_WORD) != 0 ? ordinal(state) : -1;
+    }
+
+    /**
+     * Steps through the letters of a string; in a tree with QU symbols, each "qu" is a single
+     * step, and a q that is not followed by u is not found.
+     * @return the state of the string, or 0 if it does not occur in the tree
+     */
+    private long stepText(CharSequence letters) {
+        long state = ROOT;
+        for (int i = 0; i < letters.length() && state != 0; i++) {
+            char c = letters.charAt(i);
+            assert (c <= 0xff);
+            if (quSymbol && c == QU && (++i == letters.length() || letters.charAt(i) != 'u')) {
+                return 0;
+            }
+            state = step(state, (byte) c);
+        }
+        return state;
+    }
+
+    /**
+     * @return the word with each "qu" replaced by the symbol QU, or null if it has a q that is not
+     * followed by u, and so cannot be compiled with QU symbols
+     */
+    static String toQuSymbols(CharSequence word) {
+        StringBuilder symbols = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == QU && (++i == word.length() || word.charAt(i) != 'u')) {
+                return null;
+            }
+            symbols.append(c);
+        }
+        return symbols.toString();
+    }
+
+    /**
+     * Advances a lookup by the letter of a tile of a board, on which a Q stands for QU. This is a
+     * single step(), except for a Q in a tree without QU symbols, which takes two.
+     * @param tile the tile's letter, in lower case
+     */
+    public long stepTile(long state, byte tile) {
+        state = step(state, tile);
+        if (tile == QU && !quSymbol) {
+            state = step(state, (byte) 'u');
+        }
+        return state;
+    }
+
+    /**
+     * Advances a lookup by a single letter. Starting from ROOT, a sequence of calls to step
+     * visits the same nodes as lookup() does for the whole sequence of letters, but callers that
+     * extend a prefix one letter at a time only pay for scanning the children of the last node.
+     * @param state the state for some prefix: ROOT, or a value returned by a previous call
+     * @param letter the letter to append to the prefix
+     * @return the state for the extended prefix, or 0 if it does not occur in the tree. The
+     * IS_WORD and HAS_CHILDREN bits have the same meaning as in the value returned by lookup();
+     * ordinal() extracts the prefix's ordinal, and the remaining bits locate the node.
+     */
+    public long step(long state, byte letter) {
+        if ((state & HAS_CHILDREN) == 0 || count == 0) {
+            return 0;
+        }
+        int offset = (int) (state >>> 32);
+        // the words that sort before the extended prefix: those before this prefix, this prefix
+        // itself, and those under the preceding siblings (added once we find the edge)
+        int ordinal = ordinal(state) + (int) (state & IS_WORD);
+        if (format == Format.BITMAP) {
+            return stepBitmap(offset, letter, ordinal);
+        }
+        if (packing != null) {
+            return stepPacked(offset, letter, ordinal);
+        }
+        for (int slot = offset; ; slot++) {
+            long edge = siblingEdge(slot);
+            int node = (int) edge;
+            byte b = getNodeLetter(node);
+            if (b < letter) {
+                if (isLastChild(node)) {
+                    return 0;
+                }
+            } else if (b > letter) {
+                return 0;
+            } else {
+                return encodeState((int) (edge >>> 32), ordinal + rank(offset, slot), isWord(node));
+            }
+        }
+    }
+
+    /**
+     * @param state a state returned by step()
+     * @return the number of words that sort before the state's prefix. When the state has the IS_WORD
+     * bit set, this is the ordinal of the word: its index in a sorted list of all the words.
+     */
+    public static int ordinal(long state) {
+        return (int) state >>> 2;
+    }
+
+    private static long encodeState(int child, int ordinal, boolean isWord) {
+        return ((long) child << 32) | ((long) ordinal << 2) | (isWord ? IS_WORD : 0) | (child > 0 ? HAS_CHILDREN : 0);
+    }
+
+    /**
+     * @return the bit that stands for the letter in a mask returned by getLetterMask(): bit 0 for
+     * 'a' through bit 25 for 'z', and bit 31 for any other letter
+     */
+    public static int letterBit(byte letter) {
+        int index = letter - 'a';
+        return index >= 0 && index < ALPHABET_SIZE ? 1 << index : OTHER_LETTER;
+    }
+
+    /**
+     * @param state a state returned by step(), or ROOT
+     * @return the letters that may follow the state's prefix, as a mask of letterBit()s, or zero
+     * if the prefix has no continuations. A search can skip the letters that are not in the mask,
+     * and abandon the prefix if none of its letters are, without calling step() for any of them.
+     */
+    public int getLetterMask(long state) {
+        return (state & HAS_CHILDREN) == 0 || count == 0 ? 0 : rank((int) (state >>> 32));
+    }
+
+    /**
+     * Lists the letters that may follow a prefix, and the state that each leads to, in a single
+     * pass over the prefix's node, rather than a step() from the prefix for each letter.
+     * @param state a state returned by step(), or ROOT
+     * @param letters receives the letters, in ascending order; it must have room for all of them:
+     *                26 in a BITMAP tree, and up to 256 in others
+     * @param states receives, for each letter, the state of the prefix extended by the letter, as
+     *               step() returns it
+     * @return the number of letters, or zero if the prefix has no continuations
+     */
+    public int getChildren(long state, byte[] letters, long[] states) {
+        if ((state & HAS_CHILDREN) == 0 || count == 0) {
+            return 0;
+        }
+        int offset = (int) (state >>> 32);
+        int ordinal = ordinal(state) + (int) (state & IS_WORD);
+        int n = 0;
+        if (format == Format.BITMAP) {
+            for (int mask = edge(offset); mask != 0; mask &= mask - 1) {
+                int slot = offset + 1 + n;
+                int pointer = edge(slot);
+                letters[n] = (byte) ('a' + Integer.numberOfTrailingZeros(mask));
+                states[n++] = encodeState(pointer >>> 1, ordinal + rank(slot), (pointer & IS_WORD) != 0);
+            }
+            return n;
+        }
+        for (int slot = offset; ; slot++) {
+            long edge = siblingEdge(slot);
+            int node = (int) edge;
+            letters[n] = getNodeLetter(node);
+            states[n++] = encodeState((int) (edge >>> 32), ordinal + rank(offset, slot), isWord(node));
+            if (isLastChild(node)) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Visits every word in the tree, in order.
+     */
+    public void visit(Visitor visitor) {
+        visit(visitor, 1, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Visits the prefixes in the tree depth first, and so in sorted order, each before its
+     * continuations. The traversal keeps its own stack, and reuses its buffers, so nothing is
+     * allocated for each prefix; it walks the tree rather than spelling out each word by its
+     * ordinal.
+     * @param minLength the length of the shortest prefixes to report; shorter ones are traversed,
+     *                  but not reported
+     * @param maxLength the length of the longest prefixes to visit
+     * @param wordsOnly whether to report only the prefixes that are words
+     */
+    public void visit(Visitor visitor, int minLength, int maxLength, boolean wordsOnly) {
+        int capacity = 16;
+        byte[] letters = new byte[capacity];
+        // for each depth, the children of the prefix at that depth, and the next one to visit
+        byte[][] childLetters = new byte[capacity][];
+        long[][] childStates = new long[capacity][];
+        int[] childCounts = new int[capacity];
+        int[] next = new int[capacity];
+        childLetters[0] = new byte[256];
+        childStates[0] = new long[256];
+        childCounts[0] = getChildren(ROOT, childLetters[0], childStates[0]);
+        int depth = 0;
+        while (depth >= 0) {
+            if (next[depth] == childCounts[depth]) {
+                --depth;
+                continue;
+            }
+            int i = next[depth]++;
+            long state = childStates[depth][i];
+            letters[depth] = childLetters[depth][i];
+            int length = depth + 1;
+            boolean descend = true;
+            if (length >= minLength && (!wordsOnly || (state & IS_WORD) != 0)) {
+                descend = visitor.visit(letters, length, state);
+            }
+            if (!descend || length >= maxLength || (state & HAS_CHILDREN) == 0) {
+                continue;
+            }
+            if (++depth == capacity) {
+                capacity *= 2;
+                letters = Arrays.copyOf(letters, capacity);
+                childLetters = Arrays.copyOf(childLetters, capacity);
+                childStates = Arrays.copyOf(childStates, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            if (childLetters[depth] == null) {
+                childLetters[depth] = new byte[256];
+                childStates[depth] = new long[256];
+            }
+            childCounts[depth] = getChildren(state, childLetters[depth], childStates[depth]);
+            next[depth] = 0;
+        }
+    }
+
+    /**
+     * Writes out the words in the tree as a sorted word list, one word per line, with each QU
+     * symbol spelled out, which compiles back into the same tree.
+     * @param payloadOut if not null, receives the payload of each word whose payload is not
+     *                   zero, as a line holding the word and the payload separated by a space
+     */
+    public void decompile(final Writer out, final Writer payloadOut) throws IOException {
+        final char[][] text = { new char[64] };
+        try {
+            visit(new Visitor() {
+                @Override
+                public boolean visit(byte[] letters, int length, long state) {
+                    char[] chars = text[0];
+                    if (chars.length < length * 2 + 1) {
+                        chars = text[0] = new char[length * 4];
+                    }
+                    int n = 0;
+                    for (int i = 0; i < length; i++) {
+                        chars[n++] = (char) (letters[i] & 0xff);
+                        if (quSymbol && letters[i] == QU) {
+                            chars[n++] = 'u';
+                        }
+                    }
+                    chars[n] = '\n';
+                    try {
+                        out.write(chars, 0, n + 1);
+                        int value = getPayload(ordinal(state));
+                        if (payloadOut != null && value != 0) {
+                            payloadOut.write(chars, 0, n);
+                            payloadOut.write(' ');
+                            payloadOut.write(Integer.toString(value));
+                            payloadOut.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new WriteFailure(e);
+                    }
+                    return true;
+                }
+            });
+        } catch (WriteFailure e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /**
+     * Carries an IOException out of a Visitor.
+     */
+    private static class WriteFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WriteFailure(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Spells out a word given its ordinal; the inverse of looking it up and taking the ordinal.
+     * In a tree with QU symbols, each QU is a single letter.
+     * @param ordinal a number in [0, getWordCount())
+     * @param letters receives the letters of the word; must be long enough to hold them
+     * @return the length of the word
+     * @throws IllegalArgumentException if the word is longer than the array
+     */
+    public int getWord(int ordinal, byte[] letters) {
+        int length = spell(ordinal, letters);
+        if (length < 0) {
+            throw new IllegalArgumentException("word " + ordinal + " is longer than " + letters.length + " letters");
+        }
+        return length;
+    }
+
+    /**
+     * As getWord(int, byte[]), but returns -1 if the array is too short for the word.
+     */
+    private int spell(int ordinal, byte[] letters) {
+        if (ordinal < 0 || ordinal >= wordCount) {
+            throw new IndexOutOfBoundsException("no word with ordinal " + ordinal);
+        }
+        int offset = 0, length = 0;
+        for (;;) {
+            // descend through the last edge whose rank does not exceed the remaining ordinal
+            int slot, child;
+            boolean isWord;
+            if (length == letters.length) {
+                return -1;
+            }
+            if (format == Format.BITMAP) {
+                int mask = edge(offset);
+                int n = Integer.bitCount(mask);
+                int i = 0;
+                while (i < n - 1 && rank(offset + 2 + i) <= ordinal) {
+                    mask &= mask - 1;
+                    i++;
+                }
+                slot = offset + 1 + i;
+                int pointer = edge(slot);
+                letters[length++] = (byte) ('a' + Integer.numberOfTrailingZeros(mask));
+                child = pointer >>> 1;
+                isWord = (pointer & IS_WORD) != 0;
+            } else {
+                slot = offset;
+                long edge = siblingEdge(slot);
+                while (!isLastChild((int) edge) && rank(slot + 1) <= ordinal) {
+                    edge = siblingEdge(++slot);
+                }
+                int node = (int) edge;
+                letters[length++] = getNodeLetter(node);
+                child = (int) (edge >>> 32);
+                isWord = isWord(node);
+            }
+            ordinal -= rank(offset, slot);
+            if (isWord) {
+                if (ordinal == 0) {
+                    return length;
+                }
+                --ordinal;
+            }
+            offset = child;
+        }
+    }
+
+    /**
+     * @return the word with the given ordinal, with each QU symbol spelled out as "qu"
+     */
+    public String getWord(int ordinal) {
+        byte[] letters = new byte[64];
+        int length;
+        while ((length = spell(ordinal, letters)) < 0) {
+            // a word this long is rare enough to spell again
+            letters = new byte[letters.length * 2];
+        }
+        char[] chars = new char[quSymbol ? length * 2 : length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            chars[n++] = (char) (letters[i] & 0xff);
+            if (quSymbol && letters[i] == QU) {
+                chars[n++] = 'u';
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Extracts the words that can be spelled from the letters of a grid, each letter used no more
+     * often than it occurs on the grid, regardless of where. This includes every word that can be
+     * traced on the grid, so repeated searches of the grid can use the much smaller tree that
+     * results. As in GridWordFinder, a Q on the grid stands for QU, and a wildcard
+     * (Char2d.WILDCARD) for any letter. The words keep their payload,
+     * but are renumbered, and the tree is built in the default format, with QU symbols if this
+     * tree has them.
+     */
+    public LetterTree restrictTo(Char2d grid) {
+        int[] counts = new int[256];
+        int size = grid.width() * grid.height();
+        for (int row = 0; row < grid.height(); row++) {
+            for (int col = 0; col < grid.width(); col++) {
+                ++counts[Character.toLowerCase(grid.get(row, col)) & 0xff];
+            }
+        }
+        // the distinct letters, in ascending order, so that the words are found in sorted order
+        byte[] letters = new byte[size];
+        int distinct = 0;
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) {
+                letters[distinct++] = (byte) c;
+            }
+        }
+        Restriction restriction = new Restriction(counts, Arrays.copyOf(letters, distinct), size * 2);
+        if (counts[Char2d.WILDCARD] > 0) {
+            restriction.collectWithWildcards(size);
+        } else {
+            restriction.collect(ROOT, 0);
+        }
+        byte[] subPayload = null;
+        if (payload != null) {
+            subPayload = new byte[restriction.wordCount];
+            for (int i = 0; i < subPayload.length; i++) {
+                subPayload[i] = payload[restriction.ordinals[i]];
+            }
+        }
+        // the words were collected in this tree's letters, symbols and all
+        return new LetterTree(buildDAG(restriction.dawg), subPayload, quSymbol);
+    }
+
+    /**
+     * The state of a single restrictTo() traversal, which walks the tree depth first, descending
+     * only through letters that remain unused, and adds the words it reaches to a DawgBuilder.
+     */
+    private class Restriction {
+        final int[] counts;
+        final byte[] letters;
+        final int[] letterBits;
+        final char[] word;
+        final DawgBuilder dawg = new DawgBuilder();
+        // the ordinal of each word found, in this tree
+        int[] ordinals = new int[64];
+        int wordCount;
+
+        Restriction(int[] counts, byte[] letters, int maxLength) {
+            this.counts = counts;
+            this.letters = letters;
+            letterBits = new int[letters.length];
+            for (int i = 0; i < letters.length; i++) {
+                letterBits[i] = letterBit(letters[i]);
+            }
+            word = new char[maxLength];
+        }
+
+        void collect(long state, int length) {
+            int mask = getLetterMask(state);
+            for (int i = 0; i < letters.length; i++) {
+                byte letter = letters[i];
+                if (counts[letter & 0xff] == 0 || (letterBits[i] & mask) == 0) {
+                    continue;
+                }
+                long next = stepTile(state, letter);
+                int nextLength = length;
+                word[nextLength++] = (char) (letter & 0xff);
+                if (letter == QU && !quSymbol) {
+                    word[nextLength++] = 'u';
+                }
+                if (next == 0) {
+                    continue;
+                }
+                if ((next & IS_WORD) != 0) {
+                    add(nextLength, ordinal(next));
+                }
+                if ((next & HAS_CHILDREN) != 0) {
+                    --counts[letter & 0xff];
+                    collect(next, nextLength);
+                    ++counts[letter & 0xff];
+                }
+            }
+        }
+
+        /**
+         * Collects the words that can be spelled when some of the letters are wildcards. A word
+         * may be reached more than once, and in any order, so the words are marked as they are
+         * reached, and added afterwards, in order.
+         * @param size the number of letters, including the wildcards
+         */
+        void collectWithWildcards(int size) {
+            BitSet found = new BitSet();
+            collectWithWildcards(ROOT, 0, found, new byte[size][], new long[size][]);
+            byte[] letters = new byte[word.length];
+            for (int ordinal = found.nextSetBit(0); ordinal >= 0; ordinal = found.nextSetBit(ordinal + 1)) {
+                int length = getWord(ordinal, letters);
+                for (int i = 0; i < length; i++) {
+                    word[i] = (char) (letters[i] & 0xff);
+                }
+                add(length, ordinal);
+            }
+        }
+
+        /**
+         * @param childLetters for each depth, the letters that follow the prefix being visited
+         * @param childStates for each depth, the states that those letters lead to
+         */
+        private void collectWithWildcards(long state, int depth, BitSet found, byte[][] childLetters,
+                                          long[][] childStates) {
+            if (childLetters[depth] == null) {
+                childLetters[depth] = new byte[256];
+                childStates[depth] = new long[256];
+            }
+            byte[] letters = childLetters[depth];
+            long[] states = childStates[depth];
+            int n = getChildren(state, letters, states);
+            for (int i = 0; i < n; i++) {
+                int letter = letters[i] & 0xff;
+                if (counts[letter] > 0) {
+                    long next = states[i];
+                    if (letter == QU && !quSymbol) {
+                        next = step(next, (byte) 'u');
+                    }
+                    --counts[letter];
+                    visitWithWildcards(next, depth, found, childLetters, childStates);
+                    ++counts[letter];
+                }
+                // a wildcard may stand for the letter whether or not a tile of it is left
+                if (counts[Char2d.WILDCARD] > 0) {
+                    --counts[Char2d.WILDCARD];
+                    visitWithWildcards(states[i], depth, found, childLetters, childStates);
+                    ++counts[Char2d.WILDCARD];
+                }
+            }
+        }
+
+        private void visitWithWildcards(long state, int depth, BitSet found, byte[][] childLetters,
+                                        long[][] childStates) {
+            if ((state & IS_WORD) != 0) {
+                found.set(ordinal(state));
+            }
+            if ((state & HAS_CHILDREN) != 0 && depth + 1 < childLetters.length) {
+                collectWithWildcards(state, depth + 1, found, childLetters, childStates);
+            }
+        }
+
+        private void add(int length, int ordinal) {
+            dawg.add(new String(word, 0, length));
+            if (wordCount == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, wordCount * 2);
+            }
+            ordinals[wordCount++] = ordinal;
+        }
+    }
+
+    private long stepBitmap(int offset, byte letter, int ordinal) {
+        int index = letter - 'a';
+        if (index < 0 || index >= ALPHABET_SIZE) {
+            return 0;
+        }
+        int mask = edge(offset);
+        int bit = 1 << index;
+        if ((mask & bit) == 0) {
+            return 0;
+        }
+        int slot = offset + 1 + Integer.bitCount(mask & (bit - 1));
+        int pointer = edge(slot);
+        return encodeState(pointer >>> 1, ordinal + rank(slot), (pointer & IS_WORD) != 0);
+    }
+
+    private long stepPacked(int offset, byte letter, int ordinal) {
+        // compare letter indexes, which are in the same order as the letters, rather than
+        // decoding the letter of every edge
+        int code = packing.codes[letter & 0xff];
+        if (code < 0) {
+            return 0;
+        }
+        int letterBits = packing.letterBits;
+        for (int slot = offset; ; slot++) {
+            int bits = packedBits((long) slot * packing.width);
+            int c = bits & packing.letterMask;
+            if (c < code) {
+                if ((bits & (2 << letterBits)) != 0) {
+                    return 0;
+                }
+            } else if (c > code) {
+                return 0;
+            } else {
+                return encodeState(bits >>> (letterBits + 2), ordinal + rank(offset, slot), (bits & (1 << letterBits)) != 0);
+            }
+        }
+    }
+
+    /**
+     * @return the rank of the edge in the given slot of the node starting at offset
+     */
+    private int rank(int offset, int slot) {
+        return slot == offset ? 0 : rank(slot);
+    }
+
+    private int rank(int slot) {
+        return ranks != null ? ranks[slot] : rankBuffer.get(slot);
+    }
+
+    /**
+     * Computes the rank of every edge: the number of words under the edges preceding it, and the
+     * letter mask of every node, in place of the rank of its first edge.
+     * @return the number of words in the tree
+     */
+    private int countWords() {
+        if (count == 0) {
+            return 0;
+        }
+        // the number of words under each node, plus one, so that zero marks unvisited nodes
+        return countWords(0, new int[count]);
+    }
+
+    private int countWords(int offset, int[] totals) {
+        if (totals[offset] != 0) {
+            return totals[offset] - 1;
+        }
+        int total = 0;
+        int mask = 0;
+        if (format == Format.BITMAP) {
+            // the node's bitmap is its letter mask
+            mask = edge(offset);
+            int n = Integer.bitCount(mask);
+            for (int slot = offset + 1; slot <= offset + n; slot++) {
+                int pointer = edge(slot);
+                ranks[slot] = total;
+                total += (pointer & IS_WORD) + (pointer > 1 ? countWords(pointer >>> 1, totals) : 0);
+            }
+        } else {
+            for (int slot = offset; ; slot++) {
+                long edge = siblingEdge(slot);
+                int node = (int) edge;
+                int child = (int) (edge >>> 32);
+                if (slot > offset) {
+                    ranks[slot] = total;
+                }
+                total += (isWord(node) ? 1 : 0) + (child > 0 ? countWords(child, totals) : 0);
+                mask |= letterBit(getNodeLetter(node));
+                if (isLastChild(node)) {
+                    break;
+                }
+            }
+        }
+        ranks[offset] = mask;
+        totals[offset] = total + 1;
+        return total;
+    }
+
+    private int edge (int offset) {
+        return nodes != null ? nodes[offset] : buffer.get(offset);
+    }
+
+    /**
+     * Reads an edge of a sibling list, in either the SIBLING_LIST or the PACKED format.
+     * @return the child offset in the upper 32 bits, and the letter and the end-of-list and
+     * end-of-word bits in the lower 32, where they are in a SIBLING_LIST edge
+     */
+    private long siblingEdge (int slot) {
+        if (packing == null) {
+            int node = edge(slot);
+            return ((long) getFirstChildIndex(node) << 32) | (node & (0xff | EOL | EOW) & 0xffffffffL);
+        }
+        int bits = packedBits((long) slot * packing.width);
+        int letter = packing.alphabet[bits & packing.letterMask] & 0xff;
+        int flags = (bits >>> packing.letterBits) & 3;
+        int node = letter | ((flags & 1) != 0 ? EOW : 0) | ((flags & 2) != 0 ? EOL : 0);
+        return ((long) (bits >>> (packing.letterBits + 2)) << 32) | (node & 0xffffffffL);
+    }
+
+    /**
+     * @return the PACKED edge starting at the given bit
+     */
+    private int packedBits (long bit) {
+        int i = (int) (bit >>> 5);
+        long window;
+        if (nodes != null) {
+            window = ((long) nodes[i] << 32) | (nodes[i + 1] & 0xffffffffL);
+        } else {
+            window = ((long) buffer.get(i) << 32) | (buffer.get(i + 1) & 0xffffffffL);
+        }
+        return (int) (window << (bit & 31) >>> (64 - packing.width));
+    }
+
+    /**
+     * The widths of the fields of a PACKED edge, and the alphabet that maps letter indexes back
+     * to letters.
+     */
+    private static final class Packing {
+        final byte[] alphabet;
+        // the index of each letter in the alphabet, or -1
+        final int[] codes = new int[256];
+        final int letterBits;
+        final int letterMask;
+        final int offsetBits;
+        final int width;
+
+        Packing (byte[] alphabet, int offsetBits) {
+            this.alphabet = alphabet;
+            Arrays.fill(codes, -1);
+            for (int i = 0; i < alphabet.length; i++) {
+                codes[alphabet[i] & 0xff] = i;
+            }
+            this.letterBits = bitsFor(alphabet.length - 1);
+            this.letterMask = (1 << letterBits) - 1;
+            this.offsetBits = offsetBits;
+            this.width = offsetBits + 2 + letterBits;
+        }
+
+        /**
+         * @return the number of ints holding the given number of edges, including a final pad
+         * int, so that any edge can be read from a pair of ints
+         */
+        int storageSize (int count) {
+            return (int) (((long) count * width + 31) >>> 5) + 1;
+        }
+
+        static int bitsFor (int value) {
+            return Math.max(1, 32 - Integer.numberOfLeadingZeros(value));
+        }
+    }
+
+    public static LetterTree build (DynamicLetterTrie trie) {
+        // recursively build the tree by adding all the nodes and setting references while
+        // unwinding the recursion
+        Encoder encoder = new Encoder(trie.hasQuSymbol(), MAX_SIBLING_OFFSET);
+        encoder.build(trie.getRoot(), 0);
+        return encoder.finish(encoder.chooseFormat());
+    }
+
+    /**
+     * Encodes the words in SIBLING_LIST format if it can address them all, and otherwise in
+     * PACKED format.
+     */
+    public static LetterTree buildDAG (DynamicLetterTrie trie) {
+        int nodeCount = trie.collapseSuffixes();
+        Encoder encoder = new Encoder(trie.hasQuSymbol(), MAX_SIBLING_OFFSET);
+        encoder.buildDAG(trie.getRoot(), 0, new int[nodeCount]);
+        return encoder.finish(encoder.chooseFormat());
+    }
+
+    /**
+     * @param trie the words to encode
+     * @param format the layout of the nodes. The BITMAP format only accepts the letters a-z.
+     */
+    public static LetterTree buildDAG (DynamicLetterTrie trie, Format format) {
+        // recursively build the tree by adding all the nodes and setting references while
+        // unwinding the recursion
+        int nodeCount = trie.collapseSuffixes();
+        Encoder encoder = new Encoder(trie.hasQuSymbol(), MAX_SIBLING_OFFSET);
+        int idMap[] = new int[nodeCount];
+        if (format == Format.BITMAP) {
+            encoder.buildBitmapDAG(trie.getRoot(), 0, idMap);
+        } else {
+            encoder.buildDAG(trie.getRoot(), 0, idMap);
+        }
+        return encoder.finish(format);
+    }
+
+    /**
+     * Encodes a minimal DAWG built incrementally from a sorted word list. Unlike buildDAG(trie),
+     * this never materializes the full trie.
+     * @param dawg the words to encode; it is finished if it was not already
+     * @param format the layout of the nodes. The BITMAP format only accepts the letters a-z.
+     */
+    public static LetterTree buildDAG (DawgBuilder dawg, Format format) {
+        return buildDAG(dawg, format, MAX_SIBLING_OFFSET);
+    }
+
+    /**
+     * Encodes a minimal DAWG in SIBLING_LIST format if it can address all the edges, and
+     * otherwise in PACKED format.
+     */
+    public static LetterTree buildDAG (DawgBuilder dawg) {
+        return buildDAG(dawg, null, MAX_SIBLING_OFFSET);
+    }
+
+    /**
+     * Encodes a minimal DAWG as buildDAG(dawg, format) does, or as buildDAG(dawg) does if the
+     * format is null, but taking the largest offset that SIBLING_LIST can address to be the one
+     * given, so that a small dictionary can exercise the choice of format.
+     */
+    static LetterTree buildDAG (DawgBuilder dawg, Format format, int maxSiblingOffset) {
+        Encoder encoder = new Encoder(dawg.hasQuSymbol(), maxSiblingOffset);
+        encoder.buildDAG(dawg, dawg.getRoot(), 0, new int[dawg.getStateCount()],
+                format == null ? Format.SIBLING_LIST : format);
+        return encoder.finish(format == null ? encoder.chooseFormat() : format);
+    }
+
+    /**
+     * Accumulates the encoded nodes while a tree is being built.
+     */
+    private static class Encoder {
+
+        // the edges, minus their child offsets, which are kept apart until finish() packs them
+        private int[] nodes = new int[8192];
+        private int[] children = new int[8192];
+        private int count;
+        private final boolean quSymbol;
+        // the largest child offset that a SIBLING_LIST edge can hold
+        private final int maxSiblingOffset;
+
+        Encoder(boolean quSymbol, int maxSiblingOffset) {
+            this.quSymbol = quSymbol;
+            this.maxSiblingOffset = maxSiblingOffset;
+        }
+
+        private void addNodeStorage (int moreNodes) {
+            if (count + moreNodes > nodes.length) {
+                expand();
+            }
+            count += moreNodes;
+        }
+
+        private void expand() {
+            int [] newNodes = new int[nodes.length * 2];
+            System.arraycopy(nodes, 0, newNodes, 0, nodes.length);
+            nodes = newNodes;
+            children = Arrays.copyOf(children, nodes.length);
+        }
+
+        private void setEdge (int slot, char c, int child, boolean isLastChild, boolean isTerminal) {
+            assert(c <= 0xff);
+            nodes[slot] = c | (isLastChild ? EOL : 0) | (isTerminal ? EOW : 0);
+            children[slot] = child;
+        }
+
+        private Format chooseFormat() {
+            for (int i = 0; i < count; i++) {
+                if (children[i] > maxSiblingOffset) {
+                    return Format.PACKED;
+                }
+            }
+            return Format.SIBLING_LIST;
+        }
+
+        private LetterTree finish(Format format) {
+            if (format == Format.PACKED) {
+                return pack();
+            }
+            int [] newNodes = new int[count];
+            System.arraycopy(nodes, 0, newNodes, 0, count);
+            if (format == Format.SIBLING_LIST) {
+                for (int i = 0; i < count; i++) {
+                    if (children[i] > maxSiblingOffset) {
+                        throw new IllegalArgumentException("too many edges for SIBLING_LIST format; use PACKED");
+                    }
+                    newNodes[i] |= children[i] << NODE_SHIFT;
+                }
+            }
+            return new LetterTree(newNodes, count, format, null, quSymbol);
+        }
+
+        private LetterTree pack() {
+            // number the letters that occur, in order
+            int[] codes = new int[256];
+            int maxChild = 0;
+            for (int i = 0; i < count; i++) {
+                codes[nodes[i] & 0xff] = 1;
+                maxChild = Math.max(maxChild, children[i]);
+            }
+            byte[] alphabet = new byte[256];
+            int alphabetSize = 0;
+            for (int c = 0; c < 256; c++) {
+                if (codes[c] != 0) {
+                    codes[c] = alphabetSize;
+                    alphabet[alphabetSize++] = (byte) c;
+                }
+            }
+            Packing packing = new Packing(Arrays.copyOf(alphabet, Math.max(1, alphabetSize)), Packing.bitsFor(maxChild));
+            if (packing.width > 32) {
+                throw new IllegalArgumentException("too many edges for PACKED format: " + count);
+            }
+            int[] packed = new int[packing.storageSize(count)];
+            for (int i = 0; i < count; i++) {
+                int node = nodes[i];
+                long bits = ((long) children[i] << (packing.letterBits + 2))
+                        | (isLastChild(node) ? 2 << packing.letterBits : 0)
+                        | (isWord(node) ? 1 << packing.letterBits : 0)
+                        | codes[node & 0xff];
+                long bit = (long) i * packing.width;
+                int word = (int) (bit >>> 5);
+                // align the edge within the pair of ints starting at the one that holds its first bit
+                long window = bits << (64 - packing.width - (bit & 31));
+                packed[word] |= (int) (window >>> 32);
+                packed[word + 1] |= (int) window;
+            }
+            return new LetterTree(packed, count, Format.PACKED, packing, quSymbol);
+        }
+
+        private int buildDAG (DynamicLetterTrie.Node node, int offset, int[] idMap) {
+            int nChildren = node.children.size();
+            // allocate space for the children of this node
+            addNodeStorage(nChildren);
+            // and set the node pointer in the following empty space
+            int nextOffset = offset + nChildren;
+            int childIndex = 0;
+            for (Character c : node.children.keySet()) {
+                DynamicLetterTrie.Node child = node.children.get(c);
+                // store zero as the firstChildOffset if this child has no children
+                int nextChildOffset = idMap[child.id];
+                //System.out.println(String.format ("%c %d %d %d=>%d", c, offset + childIndex, nextOffset, child.id, nextChildOffset));
+                if (nextChildOffset == 0 && !child.children.isEmpty()) {
+                    // store the child, as represented by its grandchildren
+                    nextChildOffset = idMap[child.id] = nextOffset;
+                    nextOffset = buildDAG(child, nextOffset, idMap);
+                }
+                setEdge(offset + childIndex, c, nextChildOffset, childIndex == nChildren-1, child.isTerminal);
+                ++childIndex;
+            }
+            return nextOffset;
+        }
+
+        private int buildBitmapDAG (DynamicLetterTrie.Node node, int offset, int[] idMap) {
+            int nChildren = node.children.size();
+            // allocate space for the letter mask and the child pointers
+            addNodeStorage(nChildren + 1);
+            int nextOffset = offset + nChildren + 1;
+            int mask = 0;
+            int childIndex = 0;
+            for (Character c : node.children.keySet()) {
+                if (c < 'a' || c > 'z') {
+                    throw new IllegalArgumentException("BITMAP format cannot encode letter '" + c + "'");
+                }
+                mask |= 1 << (c - 'a');
+                DynamicLetterTrie.Node child = node.children.get(c);
+                int nextChildOffset = idMap[child.id];
+                if (nextChildOffset == 0 && !child.children.isEmpty()) {
+                    nextChildOffset = idMap[child.id] = nextOffset;
+                    nextOffset = buildBitmapDAG(child, nextOffset, idMap);
+                }
+                nodes[offset + 1 + childIndex] = (nextChildOffset << 1) | (child.isTerminal ? IS_WORD : 0);
+                ++childIndex;
+            }
+            nodes[offset] = mask;
+            return nextOffset;
+        }
+
+        private int buildDAG (DawgBuilder dawg, int state, int offset, int[] offsets, Format format) {
+            int first = dawg.getFirstEdge(state), nChildren = dawg.getEdgeEnd(state) - first;
+            int header = format == Format.BITMAP ? 1 : 0;
+            addNodeStorage(nChildren + header);
+            int nextOffset = offset + nChildren + header;
+            int mask = 0;
+            for (int childIndex = 0; childIndex < nChildren; childIndex++) {
+                char c = dawg.getEdgeLetter(first + childIndex);
+                int child = dawg.getEdgeTarget(first + childIndex);
+                int nextChildOffset = offsets[child];
+                if (nextChildOffset == 0 && dawg.hasEdges(child)) {
+                    nextChildOffset = offsets[child] = nextOffset;
+                    nextOffset = buildDAG(dawg, child, nextOffset, offsets, format);
+                }
+                if (format == Format.BITMAP) {
+                    if (c < 'a' || c > 'z') {
+                        throw new IllegalArgumentException("BITMAP format cannot encode letter '" + c + "'");
+                    }
+                    mask |= 1 << (c - 'a');
+                    nodes[offset + 1 + childIndex] = (nextChildOffset << 1) | (dawg.isTerminal(child) ? IS_WORD : 0);
+                } else {
+                    setEdge(offset + childIndex, c, nextChildOffset, childIndex == nChildren-1, dawg.isTerminal(child));
+                }
+            }
+            if (format == Format.BITMAP) {
+                nodes[offset] = mask;
+            }
+            return nextOffset;
+        }
+
+        private int build (DynamicLetterTrie.Node node, int offset) {
+            int nChildren = node.children.size();
+            // allocate space for the children of this node
+            addNodeStorage(nChildren);
+            // and set the node pointer in the following empty space
+            int nextOffset = offset + nChildren;
+            int childIndex = 0;
+            for (Character c : node.children.keySet()) {
+                DynamicLetterTrie.Node child = node.children.get(c);
+                // store zero as the firstChildOffset if this child has no children
+                int nextChildOffset = child.children.isEmpty() ? 0 : nextOffset;
+                setEdge(offset + childIndex, c, nextChildOffset, childIndex == nChildren-1, child.isTerminal);
+                ++childIndex;
+                nextOffset = build(child, nextOffset);
+            }
+            return nextOffset;
+        }
+    }
+
+    private static byte getNodeLetter (int node) {
+        return (byte) (node & 0xff);
+    }
+
+    private static int getFirstChildIndex (int node) {
+        return (node & NODE_MASK) >>> NODE_SHIFT;
+    }
+
+    private static boolean isLastChild (int node) {
+        return (node & EOL) != 0;
+    }
+
+    private static boolean isWord (int node) {
+        return (node & EOW) != 0;
+    }
+
+    @Override
+    public String toString () {
+        return String.format("LetterTree<%s,%d>", format, count);
+    }
+
+    /*
+     * read from a binary file in trie format, copying the edges into a heap array. This works with
+     * any stream (eg an Android resource); use map() when the dictionary is a plain file.
+     */
+    public static LetterTree read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Format format = Format.SIBLING_LIST;
+        boolean hasPayload = false, quSymbol = false, hasRanks = false;
+        if ((count & FORMAT_TAG) != 0) {
+            format = readFormat(count);
+            hasPayload = (count & PAYLOAD_TAG) != 0;
+            quSymbol = (count & QU_TAG) != 0;
+            hasRanks = (count & RANKS_TAG) != 0;
+            count = in.readInt();
+        }
+        Packing packing = null;
+        if (format == Format.PACKED) {
+            byte[] alphabet = new byte[in.readInt()];
+            in.readFully(alphabet);
+            in.skipBytes(padding(alphabet.length));
+            packing = new Packing(alphabet, in.readInt());
+        }
+        int size = storageSize(count, packing);
+        int[] nodes = readInts(in, size);
+        LetterTree tree;
+        if (hasRanks) {
+            int wordCount = in.readInt();
+            tree = new LetterTree(nodes, null, count, format, packing, quSymbol, readInts(in, count), null, wordCount);
+        } else {
+            tree = new LetterTree(nodes, count, format, packing, quSymbol);
+        }
+        if (hasPayload) {
+            int length = in.readInt();
+            if (length != tree.getWordCount()) {
+                throw new IOException("invalid trie payload: " + length + " entries for " + tree.getWordCount() + " words");
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            tree = tree.withPayload(payload);
+        }
+        return tree;
+    }
+
+    private static int[] readInts(DataInputStream in, int size) throws IOException {
+        // decode in bulk rather than one readInt() at a time
+        byte[] bytes = new byte[size * 4];
+        in.readFully(bytes);
+        int[] ints = new int[size];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(ints);
+        return ints;
+    }
+
+    /**
+     * Maps a binary file in trie format (as written by write()) into memory. Lookups run directly
+     * against the mapped file, and nothing is read or copied at load time beyond the header and
+     * the payload; only a file written without ranks has them computed, on the heap.
+     * @param file a compiled dictionary
+     * @return a read-only tree backed by the mapped file
+     */
+    public static LetterTree map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = bytes.getInt();
+            Format format = Format.SIBLING_LIST;
+            boolean hasPayload = false, quSymbol = false, hasRanks = false;
+            if ((count & FORMAT_TAG) != 0) {
+                format = readFormat(count);
+                hasPayload = (count & PAYLOAD_TAG) != 0;
+                quSymbol = (count & QU_TAG) != 0;
+                hasRanks = (count & RANKS_TAG) != 0;
+                count = bytes.getInt();
+            }
+            Packing packing = null;
+            if (format == Format.PACKED) {
+                byte[] alphabet = new byte[bytes.getInt()];
+                bytes.get(alphabet);
+                bytes.position(bytes.position() + padding(alphabet.length));
+                packing = new Packing(alphabet, bytes.getInt());
+            }
+            int size = storageSize(count, packing);
+            int rankSize = hasRanks ? count + 1 : 0;
+            if (count < 0 || size + rankSize > bytes.remaining() / 4) {
+                throw new IOException("invalid trie file: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            IntBuffer edges = bytes.slice().asIntBuffer();
+            edges.limit(size);
+            bytes.position(bytes.position() + size * 4);
+            LetterTree tree;
+            if (hasRanks) {
+                int wordCount = bytes.getInt();
+                IntBuffer ranks = bytes.slice().asIntBuffer();
+                ranks.limit(count);
+                bytes.position(bytes.position() + count * 4);
+                tree = new LetterTree(null, edges, count, format, packing, quSymbol, null, ranks, wordCount);
+            } else {
+                tree = new LetterTree(null, edges, count, format, packing, quSymbol, null, null, 0);
+            }
+            if (hasPayload) {
+                // the payload is small, and is copied to the heap
+                int length = bytes.remaining() < 4 ? -1 : bytes.getInt();
+                if (length != tree.getWordCount() || length > bytes.remaining()) {
+                    throw new IOException("invalid trie file: " + file);
+                }
+                byte[] payload = new byte[length];
+                bytes.get(payload);
+                tree = tree.withPayload(payload);
+            }
+            return tree;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int storageSize (int count, Packing packing) {
+        return packing == null ? count : packing.storageSize(count);
+    }
+
+    /**
+     * @return the number of bytes that pad a PACKED tree's alphabet to a whole number of ints
+     */
+    private static int padding (int alphabetLength) {
+        return -alphabetLength & 3;
+    }
+
+    private static Format readFormat (int header) throws IOException {
+        int ordinal = header & ~(FORMAT_TAG | PAYLOAD_TAG | QU_TAG | RANKS_TAG);
+        if (ordinal >= Format.values().length) {
+            throw new IOException("unknown trie format: " + ordinal);
+        }
+        return Format.values()[ordinal];
+    }
+
+    /*
+     * Trees are written as a header naming the format, the count, and the edges. PACKED trees
+     * follow the count with the length of their alphabet, its letters, padded to a whole int, and
+     * the width of their offsets. The edges are followed by the number of words and the rank of
+     * each slot, which are flagged in the header, so that files written before they were stored,
+     * and sibling-list files written with no header at all, still load. A payload, when present,
+     * is flagged in the header, and follows the ranks as its length and its bytes. QU symbols
+     * are also flagged in the header.
+     */
+    public void write (DataOutputStream out) throws IOException {
+        out.writeInt(getTag());
+        out.writeInt(count);
+        if (packing != null) {
+            out.writeInt(packing.alphabet.length);
+            out.write(packing.alphabet);
+            out.write(new byte[padding(packing.alphabet.length)]);
+            out.writeInt(packing.offsetBits);
+        }
+        int size = storageSize(count, packing);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(edge(i));
+        }
+        out.writeInt(wordCount);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(rank(i));
+        }
+        if (payload != null) {
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+    }
+
+    private int getTag() {
+        return FORMAT_TAG | RANKS_TAG | (payload != null ? PAYLOAD_TAG : 0) | (quSymbol ? QU_TAG : 0) | format.ordinal();
+    }
+
+    /**
+     * Writes the tree in the same format as write(DataOutputStream), encoding all the edges into
+     * a single buffer and handing it to the channel in bulk.
+     */
+    public void write (WritableByteChannel out) throws IOException {
+        int size = storageSize(count, packing);
+        int header = 8 + (packing == null ? 0 : 8 + packing.alphabet.length + padding(packing.alphabet.length));
+        int trailer = 4 + count * 4 + (payload == null ? 0 : 4 + payload.length);
+        ByteBuffer bytes = ByteBuffer.allocate(header + size * 4 + trailer);
+        bytes.putInt(getTag());
+        bytes.putInt(count);
+        if (packing != null) {
+            bytes.putInt(packing.alphabet.length);
+            bytes.put(packing.alphabet);
+            bytes.position(bytes.position() + padding(packing.alphabet.length));
+            bytes.putInt(packing.offsetBits);
+        }
+        if (nodes != null) {
+            bytes.asIntBuffer().put(nodes, 0, size);
+        } else {
+            IntBuffer edges = buffer.duplicate();
+            edges.rewind();
+            bytes.asIntBuffer().put(edges);
+        }
+        bytes.position(bytes.position() + size * 4);
+        bytes.putInt(wordCount);
+        if (ranks != null) {
+            bytes.asIntBuffer().put(ranks, 0, count);
+        } else {
+            IntBuffer slots = rankBuffer.duplicate();
+            slots.rewind();
+            bytes.asIntBuffer().put(slots);
+        }
+        bytes.position(bytes.position() + count * 4);
+        if (payload != null) {
+            bytes.putInt(payload.length);
+            bytes.put(payload);
+        }
+        bytes.rewind();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+}
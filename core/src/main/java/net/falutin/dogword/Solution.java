@@ -0,0 +1,147 @@
+package net.falutin.dogword;
+
+import java.util.Arrays;
+
+/**
+ * Every word on a board, with the board's maximum score and the number of words of each length.
+ * A board is solved once, by GridWordFinder.solve(), and the solution is kept with the game.
+ *
+ * For boards of up to 16 cells, the solution also holds a path for each word: the cells that
+ * spell it, in order, packed four bits per cell into a long, starting from the low bits.
+ */
+public class Solution {
+
+    /** the most cells a board may have for its paths to be recorded */
+    public static final int MAX_PATH_CELLS = 16;
+
+    private final String[] words;
+    private final int maxScore;
+    // the number of words of each length, indexed by length
+    private final int[] lengthCounts;
+    // for each word, the cells of one path that spells it, and the number of cells; or null
+    private final long[] paths;
+    private final byte[] pathLengths;
+
+    /**
+     * @param words the words on the board, in upper case and in alphabetical order
+     * @param maxScore the total score of all the words
+     */
+    public Solution(String[] words, int maxScore) {
+        this(words, maxScore, null, null);
+    }
+
+    /**
+     * @param words the words on the board, in upper case and in alphabetical order
+     * @param maxScore the total score of all the words
+     * @param paths for each word, a path that spells it, as returned by encodePath()
+     * @param pathLengths for each word, the number of cells in its path
+     */
+    public Solution(String[] words, int maxScore, long[] paths, byte[] pathLengths) {
+        if (paths != null && (paths.length != words.length || pathLengths.length != words.length)) {
+            throw new IllegalArgumentException(paths.length + " paths for " + words.length + " words");
+        }
+        this.words = words;
+        this.maxScore = maxScore;
+        this.paths = paths;
+        this.pathLengths = pathLengths;
+        int longest = 0;
+        for (String word : words) {
+            longest = Math.max(longest, word.length());
+        }
+        lengthCounts = new int[longest + 1];
+        for (String word : words) {
+            ++lengthCounts[word.length()];
+        }
+    }
+
+    /**
+     * @return the words on the board, in upper case and in alphabetical order. The array is
+     * shared, and must not be modified.
+     */
+    public String[] getWords() {
+        return words;
+    }
+
+    public int getWordCount() {
+        return words.length;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * @return the length of the longest word on the board, or zero if there are no words
+     */
+    public int getLongestWordLength() {
+        return words.length == 0 ? 0 : lengthCounts.length - 1;
+    }
+
+    /**
+     * @return the number of words on the board with the given number of letters
+     */
+    public int getWordCount(int length) {
+        return length >= 0 && length < lengthCounts.length ? lengthCounts[length] : 0;
+    }
+
+    /**
+     * @return the position of the word, in upper case, in getWords(), or a negative number if it
+     * is not on the board
+     */
+    public int indexOf(String word) {
+        return Arrays.binarySearch(words, word);
+    }
+
+    public boolean hasPaths() {
+        return paths != null;
+    }
+
+    /**
+     * @param i a word's position in getWords()
+     * @return the cells of a path that spells the word, packed by encodePath(); see getCell()
+     */
+    public long getPath(int i) {
+        return paths[i];
+    }
+
+    /**
+     * @param i a word's position in getWords()
+     * @return the number of cells in the word's path, which is less than the word's length when
+     * the path crosses a Q, standing for QU
+     */
+    public int getPathLength(int i) {
+        return pathLengths[i];
+    }
+
+    /**
+     * The paths of all the words, as passed to the constructor. The arrays are shared, and must
+     * not be modified.
+     */
+    public long[] getPaths() {
+        return paths;
+    }
+
+    public byte[] getPathLengths() {
+        return pathLengths;
+    }
+
+    /**
+     * Packs a path of cells of a board with no more than MAX_PATH_CELLS cells into a long.
+     * @param path the indexes (row * width + col) of the cells
+     * @param length the number of cells in the path
+     */
+    public static long encodePath(byte[] path, int length) {
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            packed |= (long) (path[i] & 0xf) << (4 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * @return the index (row * width + col) of the i'th cell of a path packed by encodePath()
+     */
+    public static int getCell(long path, int i) {
+        return (int) (path >>> (4 * i)) & 0xf;
+    }
+}
@@ -0,0 +1,61 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchSolverTest {
+
+    @Test
+    public void testSolveAll() throws IOException, InterruptedException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        final GridWordFinder finder = new GridWordFinder(tree);
+        List<CellGrid> grids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            CellGrid grid = new CellGrid(4, 4);
+            grid.randomize();
+            grids.add(grid);
+        }
+        BatchSolver solver = new BatchSolver(finder, 4);
+        try {
+            List<BatchSolver.Result> results = solver.solveAll(grids);
+            assertEquals(grids.size(), results.size());
+            for (int i = 0; i < grids.size(); i++) {
+                assertEquals(finder.findWords(grids.get(i)).size(), results.get(i).wordCount);
+                assertEquals(finder.computeMaxScore(grids.get(i)), results.get(i).maxScore);
+                assertEquals(finder.solve(grids.get(i)).getLongestWordLength(), results.get(i).longestWord);
+            }
+            // results arrive in input order
+            final long[] next = new long[1];
+            BatchSolver.Stats stats = solver.solve(grids.iterator(), new BatchSolver.ResultHandler() {
+                @Override
+                public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                    assertEquals(next[0]++, index);
+                }
+            });
+            assertEquals(grids.size(), stats.boards);
+            assertTrue(stats.elapsedNanos > 0);
+            assertTrue(stats.getBoardsPerSecond() > 0);
+            // the workers can list the words too, in alphabetical order
+            stats = solver.solveWords(grids.subList(0, 100).iterator(), new BatchSolver.WordListHandler() {
+                @Override
+                public void solved(long index, Char2d grid, int maxScore, int longestWord, int[] ordinals) {
+                    Solution solution = finder.solve(grid);
+                    assertEquals(solution.getMaxScore(), maxScore);
+                    assertEquals(solution.getLongestWordLength(), longestWord);
+                    assertEquals(solution.getWords().length, ordinals.length);
+                    for (int i = 0; i < ordinals.length; i++) {
+                        assertEquals(solution.getWords()[i].toLowerCase(), finder.getTree().getWord(ordinals[i]));
+                    }
+                }
+            });
+            assertEquals(100, stats.boards);
+        } finally {
+            solver.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoardBankTest {
+
+    @Test
+    public void testBuildWriteAndMap() throws IOException, InterruptedException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        GridWordFinder finder = new GridWordFinder(tree);
+        Random random = new Random(1);
+        final List<CellGrid> grids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            CellGrid grid = new CellGrid(4, 4, random);
+            grid.randomize();
+            grids.add(grid);
+        }
+        final BoardBank.Builder builder = new BoardBank.Builder(4, 4);
+        BatchSolver solver = new BatchSolver(finder, 4);
+        try {
+            solver.solve(grids.iterator(), new BatchSolver.ResultHandler() {
+                @Override
+                public void solved(long index, Char2d grid, int wordCount, int maxScore, int longestWord) {
+                    builder.add(grid, wordCount, maxScore, longestWord);
+                }
+            });
+        } finally {
+            solver.shutdown();
+        }
+        BoardBank bank = builder.build();
+        checkBank(finder, bank, grids.size());
+
+        File file = File.createTempFile("boards", ".bin");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            bank.write(out);
+        } finally {
+            out.close();
+        }
+        BoardBank mapped = BoardBank.map(file);
+        checkBank(finder, mapped, grids.size());
+        for (int i = 0; i < bank.size(); i++) {
+            assertEquals (bank.getBoard(i), mapped.getBoard(i));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bank.write(new DataOutputStream(bytes));
+        assertEquals (file.length(), bytes.size());
+        BoardBank read = BoardBank.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        checkBank(finder, read, grids.size());
+    }
+
+    private void checkBank(GridWordFinder finder, BoardBank bank, int size) {
+        assertEquals (size, bank.size());
+        assertEquals (size, bank.count(0, bank.getHighestScore()));
+        int previous = 0;
+        for (int i = 0; i < bank.size(); i++) {
+            // sorted by score, with the statistics of each board
+            assertTrue (bank.getMaxScore(i) >= previous);
+            previous = bank.getMaxScore(i);
+            if (i % 50 == 0) {
+                CellGrid grid = new CellGrid(4, 4);
+                grid.setCells(bank.getBoard(i));
+                Solution solution = finder.solve(grid);
+                assertEquals (solution.getWordCount(), bank.getWordCount(i));
+                assertEquals (solution.getMaxScore(), bank.getMaxScore(i));
+                assertEquals (solution.getLongestWordLength(), bank.getLongestWord(i));
+            }
+        }
+        assertEquals (previous, bank.getHighestScore());
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            int board = bank.pick(100, 200, random);
+            assertTrue (bank.getMaxScore(board) >= 100 && bank.getMaxScore(board) <= 200);
+        }
+        assertEquals (-1, bank.pick(bank.getHighestScore() + 1, Integer.MAX_VALUE, random));
+        int lowest = bank.getMaxScore(0);
+        assertEquals (lowest, bank.getMaxScore(bank.pick(0, lowest, random)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsWrongSize() {
+        CellGrid grid = new CellGrid(5, 5);
+        grid.randomize();
+        new BoardBank.Builder(4, 4).add(grid, 1, 1, 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        BoardBank.read(new DataInputStream(new ByteArrayInputStream(new byte[64])));
+    }
+}
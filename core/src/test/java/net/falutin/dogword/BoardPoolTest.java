@@ -0,0 +1,66 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoardPoolTest {
+
+    @Test
+    public void testBoardsMeetCriteria() throws IOException, InterruptedException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        GridWordFinder finder = new GridWordFinder(tree);
+        BoardPool.Criteria criteria = new BoardPool.Criteria(40, 7, 80, 300);
+        BoardPool pool = new BoardPool(finder, 4, 4, criteria, 4, new Random(1));
+        pool.start();
+        try {
+            for (int i = 0; i < 20; i++) {
+                BoardPool.Board board = pool.take();
+                Solution solution = board.solution;
+                assertTrue (solution.getWordCount() >= 40);
+                assertTrue (solution.getLongestWordLength() >= 7);
+                assertTrue (solution.getMaxScore() >= 80 && solution.getMaxScore() <= 300);
+                // the solution is that of the board
+                assertEquals (finder.computeMaxScore(board.grid), solution.getMaxScore());
+                assertEquals (finder.findWords(board.grid).size(), solution.getWordCount());
+                assertEquals (finder.findWords(board.grid), new GridWordFinder(board.dictionary).findWords(board.grid));
+                // each word of the board maps from its ordinal to its place in the solution
+                for (int j = 0; j < solution.getWordCount(); j++) {
+                    String word = solution.getWords()[j].toLowerCase();
+                    assertEquals (j, board.solutionIndexes[board.dictionary.getOrdinal(word)]);
+                }
+                int onBoard = 0;
+                for (int index : board.solutionIndexes) {
+                    onBoard += index >= 0 ? 1 : 0;
+                }
+                assertEquals (solution.getWordCount(), onBoard);
+            }
+        } finally {
+            pool.stop();
+        }
+        assertTrue (pool.size() <= 4);
+        assertTrue (pool.getRejectedCount() > 0);
+        assertTrue (pool.getGeneratedCount() >= 20 + pool.getRejectedCount());
+    }
+
+    @Test
+    public void testPoolFillsToCapacity() throws IOException, InterruptedException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        BoardPool pool = new BoardPool(new GridWordFinder(tree), 4, 4, BoardPool.Criteria.DEFAULT, 3);
+        assertNull (pool.poll());
+        pool.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (pool.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals (3, pool.size());
+            assertNotNull (pool.poll());
+        } finally {
+            pool.stop();
+        }
+    }
+}
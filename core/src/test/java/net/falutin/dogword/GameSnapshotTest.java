@@ -0,0 +1,72 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class GameSnapshotTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        CellGrid grid = new CellGrid(4, 4);
+        grid.setCells("ABCDEFGHIJKLMNOQ");
+        long[] found = new long[2];
+        found[0] = 0x8000000000000001L;
+        found[1] = 0x5;
+        GameSnapshot game = new GameSnapshot(grid, 70, found, 123, 456, true);
+        byte[] bytes = game.toBytes();
+        // version, size, letters, flag, score, seconds, count, bits
+        assertEquals(3 + 16 + 1 + 4 + 4 + 2 + 9, bytes.length);
+        GameSnapshot restored = GameSnapshot.fromBytes(bytes);
+        assertEquals(grid.toString(), restored.getGrid().toString());
+        assertEquals(4, restored.width);
+        assertEquals(4, restored.height);
+        assertEquals(70, restored.wordCount);
+        assertArrayEquals(found, restored.found);
+        assertEquals(123, restored.score);
+        assertEquals(456, restored.elapsedSeconds);
+        assertTrue(restored.gameOver);
+    }
+
+    @Test
+    public void testNoWords() throws IOException {
+        CellGrid grid = new CellGrid(3, 3);
+        grid.setCells("XXXXXXXXX");
+        GameSnapshot restored = GameSnapshot.fromBytes(new GameSnapshot(grid, 0, new long[0], 0, 0, false).toBytes());
+        assertEquals(0, restored.wordCount);
+        assertEquals(0, restored.found.length);
+        assertFalse(restored.gameOver);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalid() throws IOException {
+        GameSnapshot.fromBytes(new byte[] { 9, 4, 4 });
+    }
+
+    @Test
+    public void testRestoreFoundWords() throws IOException {
+        String[] words = new String[100];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = String.format("W%03d", i);
+        }
+        GridWords gridWords = new GridWords(words);
+        gridWords.addFoundWords(new String[] { "W000", "W063", "W064", "W099" });
+        CellGrid grid = new CellGrid(4, 4);
+        grid.setCells("ABCDEFGHIJKLMNOP");
+        GameSnapshot game = GameSnapshot.fromBytes(new GameSnapshot(grid, words.length,
+                gridWords.getFoundBits(), 10, 20, false).toBytes());
+        GridWords restored = new GridWords(words);
+        restored.setFoundBits(game.found);
+        assertEquals(4, restored.getNumFound());
+        assertArrayEquals(gridWords.getWordsFound(), restored.getWordsFound());
+        assertEquals(gridWords.formatWordList(HintStyle.RevealWord, 1),
+                restored.formatWordList(HintStyle.RevealWord, 1));
+        restored.addFound(1);
+        assertTrue(restored.isFound("W001"));
+        gridWords.addFound("W001");
+        assertEquals(gridWords.formatWordList(HintStyle.RevealWord, 1),
+                restored.formatWordList(HintStyle.RevealWord, 1));
+    }
+}
@@ -0,0 +1,357 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Tests for the GridWordFinder
+ */
+public class GridWordFinderTest {
+
+    @Test
+    public void testFindWords () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        TestGrid grid = new TestGrid("ABCDEFGHIJKLMNOP");
+        GridWordFinder finder = new GridWordFinder(tree);
+        Set<String> words = finder.findWords(grid);
+        for (String word : new String[] { "fie", "fin", "fink", "fino",
+                "glop", "ink", "knife", "lop", "mink", "nim",
+                "plonk", "pol"}) {
+            assertTrue (word + " not found", words.contains(word));
+        }
+        assertEquals (12, words.size());
+        finder = new GridWordFinder(tree, 4);
+        words = finder.findWords(grid);
+        assertEquals (6, words.size());
+        for (String word : new String[] { "fink", "fino", "glop", "knife", "mink", "plonk"}) {
+            assertTrue (words.contains(word));
+        }
+    }
+
+    @Test
+    public void testFindWordsForAppStore () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        TestGrid grid = new TestGrid("MRABSYLHDRNEMEDE");
+        GridWordFinder finder = new GridWordFinder(tree);
+        Set<String> words = finder.findWords(grid);
+        assertEquals (95, words.size());
+        System.out.println(words);
+        int score = 0;
+        for (String word : words) {
+            score += GridWordFinder.fibonacci(word.length()-2);
+        }
+        assertEquals(240, score);
+    }
+
+    @Test
+    public void testFindWordOrdinals () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        TestGrid grid = new TestGrid("MRABSYLHDRNEMEDE");
+        GridWordFinder finder = new GridWordFinder(tree);
+        BitSet found = new BitSet();
+        assertEquals (95, finder.findWordOrdinals(grid, found));
+        assertEquals (95, found.cardinality());
+        Set<String> words = finder.findWords(grid);
+        String previous = "";
+        for (int ordinal = found.nextSetBit(0); ordinal >= 0; ordinal = found.nextSetBit(ordinal + 1)) {
+            String word = tree.getWord(ordinal);
+            assertTrue (word, words.contains(word));
+            assertTrue (word.compareTo(previous) > 0);
+            previous = word;
+        }
+        // finding the same words again adds nothing
+        assertEquals (0, finder.findWordOrdinals(grid, found));
+        assertEquals (240, finder.computeMaxScore(grid));
+    }
+
+    @Test
+    public void testSolve () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        TestGrid grid = new TestGrid("MRABSYLHDRNEMEDE");
+        GridWordFinder finder = new GridWordFinder(tree);
+        Solution solution = finder.solve(grid);
+        assertEquals (95, solution.getWordCount());
+        assertEquals (240, solution.getMaxScore());
+        Set<String> words = finder.findWords(grid);
+        int[] lengthCounts = new int[17];
+        for (String word : words) {
+            ++lengthCounts[word.length()];
+        }
+        int total = 0;
+        for (int length = 0; length < lengthCounts.length; length++) {
+            assertEquals (lengthCounts[length], solution.getWordCount(length));
+            total += solution.getWordCount(length);
+            if (lengthCounts[length] > 0) {
+                assertTrue (solution.getLongestWordLength() >= length);
+            }
+        }
+        assertEquals (95, total);
+        assertTrue (solution.getWordCount(solution.getLongestWordLength()) > 0);
+        String previous = "";
+        for (String word : solution.getWords()) {
+            assertTrue (word, words.contains(word.toLowerCase()));
+            assertTrue (word.compareTo(previous) > 0);
+            previous = word;
+        }
+    }
+
+    @Test
+    public void testSolutionPaths () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        GridWordFinder finder = new GridWordFinder(tree);
+        // includes a Q, which stands for QU
+        for (String letters : new String[] { "MRABSYLHDRNEMEDE", "AQOWAIIMGUAIILOA" }) {
+            TestGrid grid = new TestGrid(letters);
+            Solution solution = finder.solve(grid);
+            assertTrue (solution.hasPaths());
+            GridWords gridWords = new GridWords(solution);
+            for (String word : solution.getWords()) {
+                byte[] path = gridWords.getPath(word);
+                StringBuilder spelled = new StringBuilder();
+                long visited = 0;
+                for (int i = 0; i < path.length; i++) {
+                    int cell = path[i];
+                    assertEquals (0, visited & (1L << cell));
+                    visited |= 1L << cell;
+                    if (i > 0) {
+                        int previous = path[i - 1];
+                        assertTrue (Math.abs(cell / 4 - previous / 4) <= 1 && Math.abs(cell % 4 - previous % 4) <= 1);
+                    }
+                    char c = letters.charAt(cell);
+                    spelled.append(c == 'Q' ? "QU" : String.valueOf(c));
+                }
+                assertEquals (word, spelled.toString());
+            }
+            assertNull (gridWords.getPath("XYZZY"));
+        }
+    }
+
+    @Test
+    public void testRestrictToGrid () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        byte[] tiers = new byte[tree.getWordCount()];
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = (byte) (i % 3);
+        }
+        tree = tree.withPayload(tiers);
+        GridWordFinder finder = new GridWordFinder(tree);
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            CellGrid grid = new CellGrid(4, 4, random);
+            grid.randomize();
+            LetterTree board = tree.restrictTo(grid);
+            GridWordFinder boardFinder = new GridWordFinder(board);
+            // the same words are found, and they score the same
+            Set<String> words = finder.findWords(grid);
+            assertEquals (words, boardFinder.findWords(grid));
+            assertEquals (finder.computeMaxScore(grid), boardFinder.computeMaxScore(grid));
+            assertTrue (board.getWordCount() >= words.size());
+            // every word in the restricted tree is in the dictionary, and uses only the grid's letters
+            int[] counts = new int[26];
+            for (char c : grid.toString().toLowerCase().toCharArray()) {
+                ++counts[c - 'a'];
+            }
+            for (int ordinal = 0; ordinal < board.getWordCount(); ordinal++) {
+                String word = board.getWord(ordinal);
+                assertTrue (word, tree.contains(word));
+                assertEquals (tree.getPayload(tree.getOrdinal(word)), board.getPayload(ordinal));
+                int[] used = new int[26];
+                for (char c : word.replace("qu", "q").toCharArray()) {
+                    assertTrue (word, ++used[c - 'a'] <= counts[c - 'a']);
+                }
+            }
+        }
+        TestGrid empty = new TestGrid("XXXXXXXXXXXXXXXX");
+        assertEquals (0, tree.restrictTo(empty).getWordCount());
+        assertEquals (0, new GridWordFinder(tree.restrictTo(empty)).findWords(empty).size());
+    }
+
+    @Test
+    public void testQuSymbol () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        LetterTree quTree = readQuTree();
+        GridWordFinder finder = new GridWordFinder(tree), quFinder = new GridWordFinder(quTree);
+        Random random = new Random(2);
+        int withQ = 0;
+        for (int i = 0; i < 300; i++) {
+            CellGrid grid = new CellGrid(4, 4, random);
+            grid.randomize();
+            if (grid.toString().indexOf('Q') >= 0) {
+                ++withQ;
+            }
+            // the same words and paths, with the same scores
+            Solution solution = finder.solve(grid), quSolution = quFinder.solve(grid);
+            assertTrue (Arrays.equals(solution.getWords(), quSolution.getWords()));
+            assertTrue (Arrays.equals(solution.getPaths(), quSolution.getPaths()));
+            assertEquals (solution.getMaxScore(), quSolution.getMaxScore());
+            LetterTree board = quTree.restrictTo(grid);
+            assertTrue (board.hasQuSymbol());
+            assertEquals (tree.restrictTo(grid).getWordCount(), board.getWordCount());
+            assertEquals (quFinder.findWords(grid), new GridWordFinder(board).findWords(grid));
+        }
+        assertTrue (withQ > 10);
+    }
+
+    private static LetterTree readQuTree() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie(true);
+        for (String word : LetterTreeTest.readWords()) {
+            trie.add(word);
+        }
+        return LetterTree.buildDAG(trie);
+    }
+
+    @Test
+    public void testWildcard () throws IOException {
+        LetterTree tree = readQuTree();
+        GridWordFinder finder = new GridWordFinder(tree);
+        Random random = new Random(3);
+        for (int i = 0; i < 40; i++) {
+            CellGrid grid = new CellGrid(4, 4, random);
+            grid.randomize();
+            char[] cells = grid.toString().toCharArray();
+            int wildcard = random.nextInt(cells.length);
+            // the words found with a wildcard are those found with any letter in its place
+            Set<String> expected = new HashSet<>();
+            for (char c = 'A'; c <= 'Z'; c++) {
+                cells[wildcard] = c;
+                expected.addAll(finder.findWords(new TestGrid(new String(cells))));
+            }
+            cells[wildcard] = Char2d.WILDCARD;
+            TestGrid wild = new TestGrid(new String(cells));
+            assertEquals (expected, finder.findWords(wild));
+            int score = 0;
+            for (String word : expected) {
+                score += finder.score(word);
+            }
+            Solution solution = finder.solve(wild);
+            assertEquals (score, solution.getMaxScore());
+            assertEquals (expected.size(), solution.getWordCount());
+            // each path spells its word, with the wildcard standing for some letter
+            for (int j = 0; j < solution.getWordCount(); j++) {
+                StringBuilder spelled = new StringBuilder();
+                String word = solution.getWords()[j];
+                for (int k = 0; k < solution.getPathLength(j); k++) {
+                    int cell = Solution.getCell(solution.getPath(j), k);
+                    char c = cells[cell];
+                    if (c == Char2d.WILDCARD) {
+                        c = word.charAt(spelled.length());
+                    }
+                    spelled.append(c == 'Q' ? "QU" : String.valueOf(c));
+                }
+                assertEquals (word, spelled.toString());
+            }
+            // restricting the dictionary to the board keeps every word, with one or two wildcards
+            assertEquals (expected, new GridWordFinder(tree.restrictTo(wild)).findWords(wild));
+            if (i % 4 == 0) {
+                cells[(wildcard + 5) % cells.length] = Char2d.WILDCARD;
+                wild = new TestGrid(new String(cells));
+                assertEquals (finder.findWords(wild), new GridWordFinder(tree.restrictTo(wild)).findWords(wild));
+            }
+        }
+    }
+
+    @Test
+    public void testScoreByPayload () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        TestGrid grid = new TestGrid("MRABSYLHDRNEMEDE");
+        // marking a single five-letter word (worth 3) as tier 2 triples its score
+        byte[] tiers = new byte[tree.getWordCount()];
+        tiers[tree.getOrdinal("blend")] = 2;
+        GridWordFinder finder = new GridWordFinder(tree.withPayload(tiers));
+        assertEquals (9, finder.score("blend"));
+        assertEquals (1, finder.score("bar"));
+        assertEquals (0, finder.score("xyzzy"));
+        assertEquals (246, finder.computeMaxScore(grid));
+    }
+
+    /**
+     * In live testing, DogWord reported that there were 11 words, but actually found 14
+     * because Q is not being treated as QU
+     * @throws IOException
+     */
+    @Test
+    public void testFindWordsBug() throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        TestGrid grid = new TestGrid("AQOWAIIMGUAIILOA");
+        GridWordFinder finder = new GridWordFinder(tree);
+        Set<String> words = finder.findWords(grid);
+        assertEquals (14, words.size());
+        System.out.println(words);
+    }
+
+    @Test
+    public void testNonSquareGrid () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        GridWordFinder finder = new GridWordFinder(tree);
+        Set<String> words = finder.findWords(new TestGrid(5, 1, "PARTY"));
+        for (String word : new String[] { "art", "arty", "par", "part", "party", "rap", "trap" }) {
+            assertTrue (word + " not found", words.contains(word));
+        }
+        assertEquals (7, words.size());
+        // the same letters as a column
+        assertEquals (words, finder.findWords(new TestGrid(1, 5, "PARTY")));
+    }
+
+    @Test
+    public void testLargeGrid () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(true);
+        GridWordFinder finder = new GridWordFinder(tree);
+        Set<String> small = finder.findWords(new TestGrid("MRABSYLHDRNEMEDE"));
+        // place the 4x4 grid in the bottom right corner of an 8x8 grid, so its paths use the
+        // high bits of the visited mask
+        StringBuilder cells = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            cells.append(row < 4 ? "XXXXXXXX" : "XXXX" + "MRABSYLHDRNEMEDE".substring((row - 4) * 4, (row - 3) * 4));
+        }
+        Set<String> large = finder.findWords(new TestGrid(8, 8, cells.toString()));
+        assertTrue (large.containsAll(small));
+        for (String word : large) {
+            assertTrue (word, small.contains(word) || word.contains("x"));
+        }
+        assertTrue (large.size() > small.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeGrid () throws IOException {
+        LetterTree tree = LetterTreeTest.readLetterTree(false);
+        new GridWordFinder(tree).findWords(new TestGrid(13, 5, new String(new char[65]).replace('\0', 'A')));
+    }
+
+    class TestGrid implements Char2d {
+        final int width, height;
+        final char[] grid;
+
+        public TestGrid(String s) {
+            this(4, 4, s);
+        }
+
+        public TestGrid(int width, int height, String s) {
+            this.width = width;
+            this.height = height;
+            grid = s.substring(0, width * height).toCharArray();
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        @Override
+        public char get(int row, int col) {
+            return grid[row * width + col];
+        }
+    }
+}
@@ -3,6 +3,13 @@ package net.falutin.dogword;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class GridWordsTest {
@@ -113,4 +120,98 @@ public class GridWordsTest {
         assertEquals("[a], b · h, [i]",
                 gridWords.formatWordList(HintStyle.RevealWord, 1));
     }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            String[] words = new String[random.nextInt(30)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = String.format("W%02d", i);
+            }
+            List<String> order = new ArrayList<>(Arrays.asList(words));
+            Collections.shuffle(order, random);
+            HashSet<String> found = new HashSet<>();
+            GridWords gw = new GridWords(words);
+            HintStyle style = HintStyle.values()[random.nextInt(HintStyle.values().length)];
+            int len = 1 + random.nextInt(4);
+            for (String word : order) {
+                if (random.nextInt(8) == 0) {
+                    style = HintStyle.values()[random.nextInt(HintStyle.values().length)];
+                    len = 1 + random.nextInt(4);
+                }
+                gw.formatWordList(style, len);
+                gw.addFound(word);
+                found.add(word);
+                String expected = formatWordList(words, found, style, len);
+                assertEquals(expected, gw.formatWordList(style, len));
+                // the list can be read in place, without copying it
+                CharSequence list = gw.getWordList(style, len);
+                assertEquals(expected.length(), list.length());
+                for (int i = 0; i < expected.length(); i++) {
+                    assertEquals(expected.charAt(i), list.charAt(i));
+                }
+                assertEquals(found.size(), gw.getNumFound());
+                assertTrue(gw.isFound(word));
+            }
+        }
+    }
+
+    @Test
+    public void testWordNotOnBoard() {
+        gridWords.addFound("zz");
+        assertFalse(gridWords.isFound("zz"));
+        assertEquals(0, gridWords.getNumFound());
+    }
+
+    // the list rendered from scratch, for comparison
+    private static String formatWordList(String[] words, HashSet<String> found, HintStyle hintStyle, int len) {
+        StringBuilder buf = new StringBuilder();
+        int i = 0, runStart = 0;
+        for (String word : words) {
+            boolean collapsing = (i - runStart) >= len;
+            if (buf.length() != 0 && !collapsing) {
+                buf.append(", ");
+            }
+            if (!found.contains(word)) {
+                appendCollapsed(buf, words, i, runStart, len);
+                switch (hintStyle) {
+                    case RevealWord:
+                        buf.append('[').append(word).append(']');
+                        break;
+                    case Length:
+                        buf.append("(").append(word.length()).append(")");
+                        break;
+                    case None:
+                }
+                runStart = i + 1;
+            } else if (!collapsing) {
+                buf.append(word);
+            }
+            ++i;
+        }
+        appendCollapsed(buf, words, i, runStart, len);
+        return buf.toString();
+    }
+
+    private static void appendCollapsed(StringBuilder buf, String[] words, int i, int runStart, int len) {
+        int runLength = i - runStart;
+        if (runLength < len) {
+            return;
+        }
+        int gapEndIndex;
+        if (runLength > 2 * len) {
+            buf.append(" · ");
+            gapEndIndex = i - len;
+        } else {
+            gapEndIndex = i - runLength + len;
+            buf.append(", ");
+        }
+        for (int j = gapEndIndex; j < i; j++) {
+            buf.append(words[j]);
+            if (j < words.length - 1) {
+                buf.append(", ");
+            }
+        }
+    }
 }
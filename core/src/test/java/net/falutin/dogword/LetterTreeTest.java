@@ -0,0 +1,685 @@
+package net.falutin.dogword;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.*;
+
+public class LetterTreeTest {
+
+    @Test
+    public void testLookup() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        LetterTree tree = LetterTree.build(trie);
+        assertEquals(2, tree.lookup("par"));
+        assertEquals(3, tree.lookup("park"));
+        assertEquals(1, tree.lookup("party"));
+        assertEquals(0, tree.lookup("partying"));
+        assertEquals(0, tree.lookup("xxx"));
+        assertEquals(0, tree.lookup("x"));
+    }
+
+    @Test
+    public void testStep() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        LetterTree tree = LetterTree.build(trie);
+        long state = LetterTree.ROOT;
+        for (char c : "par".toCharArray()) {
+            state = tree.step(state, (byte) c);
+        }
+        assertEquals(LetterTree.HAS_CHILDREN, state & 3);
+        long park = tree.step(state, (byte) 'k');
+        assertEquals(LetterTree.IS_WORD | LetterTree.HAS_CHILDREN, park & 3);
+        long party = tree.step(tree.step(state, (byte) 't'), (byte) 'y');
+        assertEquals(LetterTree.IS_WORD, party & 3);
+        // no continuations from a leaf, nor from a missing prefix
+        assertEquals(0, tree.step(party, (byte) 'i'));
+        assertEquals(0, tree.step(state, (byte) 'x'));
+        assertEquals(0, tree.step(0, (byte) 'p'));
+        // the same states are reached when starting from a DAG
+        LetterTree dag = readLetterTree(true);
+        state = LetterTree.ROOT;
+        for (char c : "encyclical".toCharArray()) {
+            state = dag.step(state, (byte) c);
+            assertTrue(state != 0);
+        }
+        assertEquals(dag.lookup("encyclical"), state & 3);
+    }
+
+    @Test
+    public void testLetterMask() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty\npa-ir\nzoo"));
+        for (LetterTree.Format format : LetterTree.Format.values()) {
+            if (format == LetterTree.Format.BITMAP) {
+                // can't hold the hyphen
+                continue;
+            }
+            LetterTree tree = LetterTree.buildDAG(trie, format);
+            int p = LetterTree.letterBit((byte) 'p'), z = LetterTree.letterBit((byte) 'z');
+            assertEquals(format.name(), p | z, tree.getLetterMask(LetterTree.ROOT));
+            long pa = tree.step(tree.step(LetterTree.ROOT, (byte) 'p'), (byte) 'a');
+            assertEquals(LetterTree.letterBit((byte) 'r') | LetterTree.letterBit((byte) '-'), tree.getLetterMask(pa));
+            long park = tree.step(tree.step(pa, (byte) 'r'), (byte) 'k');
+            assertEquals(LetterTree.letterBit((byte) 'i'), tree.getLetterMask(park));
+            assertEquals(0, tree.getLetterMask(tree.step(tree.step(park, (byte) 'i'), (byte) 'n')) & p);
+            // no continuations from a leaf
+            long party = tree.step(tree.step(tree.step(pa, (byte) 'r'), (byte) 't'), (byte) 'y');
+            assertEquals(0, tree.getLetterMask(party));
+        }
+        // every letter that steps from a node is in its mask, and no others
+        for (LetterTree dag : new LetterTree[] { readLetterTree(true), readTree(LetterTree.Format.BITMAP) }) {
+            long state = LetterTree.ROOT;
+            for (char c : "encyclical".toCharArray()) {
+                int mask = 0;
+                for (byte letter = 'a'; letter <= 'z'; letter++) {
+                    if (dag.step(state, letter) != 0) {
+                        mask |= LetterTree.letterBit(letter);
+                    }
+                }
+                assertEquals(mask, dag.getLetterMask(state));
+                state = dag.step(state, (byte) c);
+            }
+        }
+    }
+
+    @Test
+    public void testCollapse() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparry\nparrying\npartying\nparking\nparty\nxxx\nx"));
+        LetterTree tree = LetterTree.build(trie);
+        assertWordsFound(tree);
+        assertEquals(20, tree.getNodeCount());
+        trie.collapseSuffixes();
+        tree = LetterTree.buildDAG(trie);
+        assertWordsFound(tree);
+        // it's really a count of edges: the "ing" and "y" tails shared by several words are
+        // merged too, so this matches the minimal DAWG
+        assertEquals(13, tree.getNodeCount());
+    }
+
+    private void assertWordsFound (LetterTree tree) {
+        assertEquals(2, tree.lookup("par"));
+        assertEquals(3, tree.lookup("parry"));
+        assertEquals(1, tree.lookup("parrying"));
+        assertEquals(1, tree.lookup("parking"));
+        assertEquals(3, tree.lookup("party"));
+        assertEquals(1, tree.lookup("partying"));
+        assertEquals(1, tree.lookup("xxx"));
+        assertEquals(3, tree.lookup("x"));
+    }
+
+    public static String getWordFilePath() {
+        final String pwd = System.getProperty("user.dir");
+        return pwd + "/core/src/test/resources/WORDS500";
+    }
+
+    public static LetterTree readLetterTree(boolean collapse) throws IOException {
+        // FIXME - have to use abs paths here because android studio doesn't handle test resources
+        // properly (see https://code.google.com/p/android/issues/detail?id=136013)
+        InputStream in = new FileInputStream(new File(getWordFilePath()));
+        assertNotNull(in);
+        InputStreamReader reader = new InputStreamReader(in);
+        DynamicLetterTrie dlt = new DynamicLetterTrie();
+        dlt.add(reader);
+        reader.close();
+        if (collapse) {
+            dlt.collapseSuffixes();
+            return LetterTree.buildDAG(dlt);
+        }
+        return LetterTree.build(dlt);
+    }
+
+    /** NOTE:
+     * The binary dictionary bundled with the app, app/src/main/res/raw/words.bin, is compiled
+     * with QU symbols: "dogword compile --qu <word list> words.bin"
+     */
+    @Test
+    public void testReadWrite() throws IOException {
+        LetterTree tree = readLetterTree(true);
+        assertEquals(3, tree.lookup("encyclical"));
+        assertEquals(2, tree.lookup("encycli"));
+        assertEquals(0, tree.lookup("encyclion"));
+        // WORDS file is 1.67 MB; we build a tree with 389308 ints which is 1.49 MB
+        // WORD gzips to 445K.  We should be able to get much better compression using
+        // an finite-state automaton that collapses suffixes as well, and squeezes out
+        // some extra fat from the micro-data representation
+        // WORDS500 = 761675, WORDS500.bin (as a tree) = 799700, (as a DAG) = 573346,
+        // (as a minimal DAG) = 311428
+        final String binPath = getWordFilePath() + ".bin";
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(binPath));
+        tree.write(out);
+        out.close();
+        DataInputStream bin = new DataInputStream(new FileInputStream(binPath));
+        LetterTree tree2 = LetterTree.read(bin);
+        bin.close();
+        assertEncyclical(tree2);
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        LetterTree tree = readLetterTree(true);
+        LetterTree mapped = roundTrips(tree)[1];
+        assertEquals(tree.getOrdinal("encyclical"), mapped.getOrdinal("encyclical"));
+        assertEquals(tree.getLetterMask(LetterTree.ROOT), mapped.getLetterMask(LetterTree.ROOT));
+        assertEquals("encyclical", mapped.getWord(mapped.getOrdinal("encyclical")));
+        assertEncyclical(mapped);
+        // a mapped tree can itself be written out again, in either way
+        assertArrayEquals(toBytes(tree), toBytes(mapped));
+        assertEncyclical(roundTrips(mapped)[1]);
+    }
+
+    @Test
+    public void testReadWithoutRanks() throws IOException {
+        // WORDS.bin was written before the ranks were stored, with no header at all, so they are
+        // computed when it is loaded
+        File binFile = new File(System.getProperty("user.dir") + "/core/src/test/resources/WORDS.bin");
+        DataInputStream bin = new DataInputStream(new FileInputStream(binFile));
+        LetterTree read = LetterTree.read(bin);
+        bin.close();
+        LetterTree mapped = LetterTree.map(binFile);
+        for (LetterTree t : new LetterTree[] { read, mapped }) {
+            assertEquals(3, t.lookup("encyclical"));
+            int ordinal = t.getOrdinal("encyclical");
+            assertEquals("encyclical", t.getWord(ordinal));
+            assertEquals("encyclicals", t.getWord(ordinal + 1));
+            assertEquals(LetterTree.letterBit((byte) 'u'), t.getLetterMask(t.step(LetterTree.ROOT, (byte) 'q'))
+                    & LetterTree.letterBit((byte) 'u'));
+        }
+        assertEquals(read.getWordCount(), mapped.getWordCount());
+        // writing it out again stores the ranks
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapped.write(new DataOutputStream(bytes));
+        LetterTree copy = LetterTree.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(read.getWordCount(), copy.getWordCount());
+        assertEquals(read.getOrdinal("encyclical"), copy.getOrdinal("encyclical"));
+    }
+
+    @Test
+    public void testBitmapFormat() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparry\nparrying\npartying\nparking\nparty\nxxx\nx"));
+        LetterTree tree = LetterTree.buildDAG(trie, LetterTree.Format.BITMAP);
+        assertEquals(LetterTree.Format.BITMAP, tree.getFormat());
+        assertWordsFound(tree);
+        assertEquals(0, tree.lookup("pa-"));
+        assertEquals(0, tree.lookup("parky"));
+
+        LetterTree siblings = readLetterTree(true);
+        LetterTree bitmap = readTree(LetterTree.Format.BITMAP);
+        for (String word : readWords()) {
+            assertEquals(word, siblings.lookup(word), bitmap.lookup(word));
+            String prefix = word.substring(0, word.length() / 2);
+            assertEquals(prefix, siblings.lookup(prefix), bitmap.lookup(prefix));
+        }
+        // the format survives being written and read back
+        for (LetterTree t : roundTrips(bitmap)) {
+            assertEncyclical(t);
+        }
+    }
+
+    @Test
+    public void testPackedFormat() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparry\nparrying\npartying\nparking\nparty\nxxx\nx"));
+        LetterTree tree = LetterTree.buildDAG(trie, LetterTree.Format.PACKED);
+        assertEquals(LetterTree.Format.PACKED, tree.getFormat());
+        assertWordsFound(tree);
+        assertEquals(0, tree.lookup("pa-"));
+        assertEquals(0, tree.lookup("parky"));
+        // small dictionaries fit the original format, which is chosen by default
+        assertEquals(LetterTree.Format.SIBLING_LIST, LetterTree.buildDAG(trie).getFormat());
+
+        LetterTree siblings = readLetterTree(true);
+        LetterTree packed = readTree(LetterTree.Format.PACKED);
+        assertEquals(siblings.getNodeCount(), packed.getNodeCount());
+        assertEquals(siblings.getWordCount(), packed.getWordCount());
+        for (String word : readWords()) {
+            assertEquals(word, siblings.lookup(word), packed.lookup(word));
+            String prefix = word.substring(0, word.length() / 2);
+            assertEquals(prefix, siblings.lookup(prefix), packed.lookup(prefix));
+        }
+        for (int i = 0; i < packed.getWordCount(); i += 97) {
+            assertEquals(siblings.getWord(i), packed.getWord(i));
+        }
+        // the edges are smaller; both files have a rank for each edge
+        long ranks = 4 * (packed.getNodeCount() + 1);
+        assertTrue(toBytes(packed).length - ranks < (toBytes(siblings).length - ranks) * 4 / 5);
+        for (LetterTree t : roundTrips(packed)) {
+            assertEncyclical(t);
+        }
+    }
+
+    @Test
+    public void testPackedWhenOffsetsOverflow() throws IOException {
+        // a lower limit on sibling-list offsets stands in for the 4M edges of a large dictionary
+        String[] sorted = new TreeSet<>(readWords()).toArray(new String[0]);
+        DawgBuilder dawg = new DawgBuilder();
+        for (String word : sorted) {
+            dawg.add(word);
+        }
+        LetterTree siblings = LetterTree.buildDAG(dawg);
+        assertEquals(LetterTree.Format.SIBLING_LIST, siblings.getFormat());
+        assertEquals(LetterTree.Format.SIBLING_LIST, LetterTree.buildDAG(dawg, null, siblings.getNodeCount()).getFormat());
+        LetterTree packed = LetterTree.buildDAG(dawg, null, 1000);
+        assertEquals(LetterTree.Format.PACKED, packed.getFormat());
+        try {
+            LetterTree.buildDAG(dawg, LetterTree.Format.SIBLING_LIST, 1000);
+            fail("offsets above the limit must be rejected in SIBLING_LIST format");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // the packed tree survives writing, reading and mapping
+        assertEquals(siblings.getNodeCount(), packed.getNodeCount());
+        LetterTree[] copies = roundTrips(packed);
+        for (LetterTree t : new LetterTree[] { packed, copies[0], copies[1] }) {
+            assertEquals(sorted.length, t.getWordCount());
+            for (int i = 0; i < sorted.length; i += 7) {
+                assertEquals(sorted[i], i, t.getOrdinal(sorted[i]));
+                assertEquals(sorted[i], t.getWord(i));
+                String prefix = sorted[i].substring(0, sorted[i].length() / 2);
+                assertEquals(prefix, siblings.lookup(prefix), t.lookup(prefix));
+            }
+        }
+    }
+
+    @Test
+    public void testOrdinals() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        LetterTree tree = LetterTree.build(trie);
+        assertEquals(3, tree.getWordCount());
+        long state = LetterTree.ROOT;
+        for (char c : "parking".toCharArray()) {
+            state = tree.step(state, (byte) c);
+        }
+        assertEquals(1, LetterTree.ordinal(state));
+        assertEquals("parking", tree.getWord(1));
+
+        // every word's ordinal is its index in sorted order, in both layouts
+        String[] sorted = new TreeSet<>(readWords()).toArray(new String[0]);
+        byte[] letters = new byte[64];
+        for (LetterTree t : new LetterTree[] { readLetterTree(true), readTree(LetterTree.Format.BITMAP) }) {
+            assertEquals(sorted.length, t.getWordCount());
+            for (int i = 0; i < sorted.length; i++) {
+                state = LetterTree.ROOT;
+                for (int j = 0; j < sorted[i].length(); j++) {
+                    state = t.step(state, (byte) sorted[i].charAt(j));
+                }
+                assertEquals(sorted[i], i, LetterTree.ordinal(state));
+                assertEquals(sorted[i], new String(letters, 0, t.getWord(i, letters), "US-ASCII"));
+            }
+        }
+    }
+
+    @Test
+    public void testLongWord() throws IOException {
+        StringBuilder buf = new StringBuilder("a");
+        while (buf.length() < 150) {
+            buf.append("supercalifragilistic");
+        }
+        String longWord = buf.toString();
+        DawgBuilder dawg = new DawgBuilder();
+        dawg.add(new StringReader("a\n" + longWord + "\nzoo"));
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("zoo\n" + longWord + "\na"));
+        for (LetterTree tree : new LetterTree[] { LetterTree.buildDAG(dawg), LetterTree.buildDAG(trie),
+                LetterTree.buildDAG(dawg, LetterTree.Format.PACKED) }) {
+            assertEquals(1, tree.getOrdinal(longWord));
+            assertEquals(longWord, tree.getWord(1));
+            assertEquals("zoo", tree.getWord(2));
+            byte[] letters = new byte[longWord.length()];
+            assertEquals(longWord.length(), tree.getWord(1, letters));
+            try {
+                tree.getWord(1, new byte[64]);
+                fail("spelled a long word into a short array");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDawgBuilder() throws IOException {
+        DawgBuilder dawg = new DawgBuilder();
+        dawg.add(new StringReader("park\nparking\nparking\nparry\nparrying\nparty\npartying\nx\nxxx"));
+        assertEquals(8, dawg.getWordCount());
+        LetterTree small = LetterTree.buildDAG(dawg, LetterTree.Format.SIBLING_LIST);
+        assertWordsFound(small);
+        assertEquals(8, small.getWordCount());
+        assertEquals(0, small.lookup("parky"));
+        // every shared suffix is stored once
+        assertEquals(13, dawg.getEdgeCount());
+        assertEquals(13, small.getNodeCount());
+
+        // the streaming builder yields the same words, and the same nodes, as collapsing a trie
+        String[] sorted = new TreeSet<>(readWords()).toArray(new String[0]);
+        dawg = new DawgBuilder();
+        for (String word : sorted) {
+            dawg.add(word);
+        }
+        LetterTree trieTree = readLetterTree(true);
+        LetterTree dawgTree = LetterTree.buildDAG(dawg, LetterTree.Format.SIBLING_LIST);
+        LetterTree dawgBitmap = LetterTree.buildDAG(dawg, LetterTree.Format.BITMAP);
+        assertEquals(trieTree.getNodeCount(), dawgTree.getNodeCount());
+        for (LetterTree t : new LetterTree[] { dawgTree, dawgBitmap }) {
+            assertEquals(sorted.length, t.getWordCount());
+            for (int i = 0; i < sorted.length; i++) {
+                assertEquals(sorted[i], trieTree.lookup(sorted[i]), t.lookup(sorted[i]));
+                assertEquals(sorted[i], t.getWord(i));
+            }
+        }
+    }
+
+    @Test
+    public void testChildren() throws IOException {
+        LetterTree[] trees = { readLetterTree(true), readTree(LetterTree.Format.BITMAP),
+                readTree(LetterTree.Format.PACKED) };
+        byte[] letters = new byte[256];
+        long[] states = new long[256];
+        for (LetterTree tree : trees) {
+            assertEquals(0, tree.getChildren(0, letters, states));
+            for (String prefix : new String[] { "", "a", "qu", "encycli", "encyclical", "zz" }) {
+                long state = LetterTree.ROOT;
+                for (char c : prefix.toCharArray()) {
+                    state = tree.step(state, (byte) c);
+                }
+                // the children are the letters that step() follows, with the same states
+                int n = tree.getChildren(state, letters, states);
+                int mask = 0, i = 0;
+                for (int c = 0; c < 256; c++) {
+                    long next = tree.step(state, (byte) c);
+                    if (next != 0) {
+                        assertEquals(prefix + (char) c, c, letters[i] & 0xff);
+                        assertEquals(prefix + (char) c, next, states[i++]);
+                        mask |= LetterTree.letterBit((byte) c);
+                    }
+                }
+                assertEquals(prefix, i, n);
+                assertEquals(prefix, tree.getLetterMask(state), mask);
+            }
+        }
+    }
+
+    @Test
+    public void testVisit() throws IOException {
+        final String[] sorted = new TreeSet<>(readWords()).toArray(new String[0]);
+        Set<String> prefixes = new HashSet<>();
+        int shortWords = 0;
+        for (String word : sorted) {
+            for (int i = 1; i <= word.length(); i++) {
+                prefixes.add(word.substring(0, i));
+            }
+            if (word.length() >= 5 && word.length() <= 6) {
+                ++shortWords;
+            }
+        }
+        for (LetterTree tree : new LetterTree[] { readLetterTree(true), readTree(LetterTree.Format.BITMAP),
+                readTree(LetterTree.Format.PACKED) }) {
+            // every word, in order
+            final int[] count = new int[1];
+            tree.visit(new LetterTree.Visitor() {
+                @Override
+                public boolean visit(byte[] letters, int length, long state) {
+                    assertEquals(count[0], LetterTree.ordinal(state));
+                    assertEquals(sorted[count[0]++], new String(letters, 0, length, Charset.forName("ISO-8859-1")));
+                    return true;
+                }
+            });
+            assertEquals(sorted.length, count[0]);
+            // every prefix, or those of some lengths
+            count[0] = 0;
+            tree.visit(new LetterTree.Visitor() {
+                @Override
+                public boolean visit(byte[] letters, int length, long state) {
+                    ++count[0];
+                    return true;
+                }
+            }, 1, Integer.MAX_VALUE, false);
+            assertEquals(prefixes.size(), count[0]);
+            count[0] = 0;
+            tree.visit(new LetterTree.Visitor() {
+                @Override
+                public boolean visit(byte[] letters, int length, long state) {
+                    assertTrue(length >= 5 && length <= 6);
+                    ++count[0];
+                    return true;
+                }
+            }, 5, 6, true);
+            assertEquals(shortWords, count[0]);
+            // the visitor can prune the traversal
+            count[0] = 0;
+            tree.visit(new LetterTree.Visitor() {
+                @Override
+                public boolean visit(byte[] letters, int length, long state) {
+                    assertEquals(1, length);
+                    ++count[0];
+                    return false;
+                }
+            }, 1, Integer.MAX_VALUE, false);
+            assertEquals(Integer.bitCount(tree.getLetterMask(LetterTree.ROOT)), count[0]);
+        }
+    }
+
+    @Test
+    public void testDecompile() throws IOException {
+        LetterTree tree = readLetterTree(true);
+        StringWriter text = new StringWriter();
+        tree.decompile(text, null);
+        DawgBuilder dawg = new DawgBuilder();
+        dawg.add(new StringReader(text.toString()));
+        LetterTree copy = LetterTree.buildDAG(dawg);
+        assertEquals(tree.getWordCount(), copy.getWordCount());
+        assertEquals(tree.getNodeCount(), copy.getNodeCount());
+
+        dawg = new DawgBuilder(true);
+        dawg.add(new StringReader("aqua\nqat\nquit\nquite\nsquid"));
+        tree = LetterTree.buildDAG(dawg).withPayload(new byte[] { 0, 3, 0, 255 - 256 });
+        text = new StringWriter();
+        StringWriter payload = new StringWriter();
+        tree.decompile(text, payload);
+        assertEquals("aqua\nquit\nquite\nsquid\n", text.toString());
+        assertEquals("quit 3\nsquid 255\n", payload.toString());
+    }
+
+    @Test
+    public void testQuSymbol() throws IOException {
+        DawgBuilder dawg = new DawgBuilder(true);
+        dawg.add(new StringReader("aqua\nqat\nquit\nquite\nsquid"));
+        // words with a bare q are left out
+        assertEquals(4, dawg.getWordCount());
+        DynamicLetterTrie trie = new DynamicLetterTrie(true);
+        trie.add(new StringReader("quite\nqat\naqua\nsquid\nquit"));
+        for (LetterTree tree : new LetterTree[] { LetterTree.buildDAG(dawg, LetterTree.Format.SIBLING_LIST),
+                LetterTree.buildDAG(dawg, LetterTree.Format.BITMAP), LetterTree.buildDAG(dawg, LetterTree.Format.PACKED),
+                LetterTree.buildDAG(trie) }) {
+            assertTrue(tree.hasQuSymbol());
+            assertEquals(4, tree.getWordCount());
+            assertEquals(3, tree.lookup("quit"));
+            assertEquals(0, tree.lookup("qat"));
+            assertEquals(0, tree.lookup("q"));
+            assertEquals(0, tree.lookup("qit"));
+            // words are spelled out, in order
+            assertEquals("aqua", tree.getWord(0));
+            assertEquals("quit", tree.getWord(1));
+            assertEquals("squid", tree.getWord(3));
+            assertEquals(1, tree.getOrdinal("quit"));
+            // the Q tile is a single step
+            long state = tree.step(LetterTree.ROOT, LetterTree.QU);
+            assertEquals(state, tree.stepTile(LetterTree.ROOT, LetterTree.QU));
+            state = tree.step(tree.step(state, (byte) 'i'), (byte) 't');
+            assertEquals(LetterTree.IS_WORD | LetterTree.HAS_CHILDREN, state & 3);
+            assertEquals(1, LetterTree.ordinal(state));
+            // the symbols survive writing
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            tree.write(new DataOutputStream(bytes));
+            LetterTree copy = LetterTree.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertTrue(copy.hasQuSymbol());
+            assertEquals("squid", copy.getWord(3));
+        }
+        // without symbols, the tile takes two steps
+        trie = new DynamicLetterTrie();
+        trie.add(new StringReader("quit"));
+        LetterTree plain = LetterTree.build(trie);
+        assertFalse(plain.hasQuSymbol());
+        assertEquals(plain.lookup("qu"), plain.stepTile(LetterTree.ROOT, LetterTree.QU) & 3);
+        assertEquals(LetterTree.HAS_CHILDREN, plain.stepTile(LetterTree.ROOT, LetterTree.QU) & 3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCollapsedTrieRejectsWords() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("parking\nparting"));
+        trie.collapseSuffixes();
+        trie.add("parks");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDawgBuilderRejectsUnsortedWords() {
+        DawgBuilder dawg = new DawgBuilder();
+        dawg.add("party");
+        dawg.add("park");
+    }
+
+    @Test
+    public void testPayload() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        LetterTree plain = LetterTree.buildDAG(trie);
+        assertFalse(plain.hasPayload());
+        assertEquals(0, plain.getPayload(1));
+        assertEquals(1, plain.getOrdinal("parking"));
+        assertEquals(-1, plain.getOrdinal("par"));
+        assertEquals(-1, plain.getOrdinal("parkingx"));
+        LetterTree tree = plain.withPayload(new byte[] { 0, 2, (byte) 200 });
+        assertEquals(2, tree.getPayload(tree.getOrdinal("parking")));
+        assertEquals(200, tree.getPayload(tree.getOrdinal("party")));
+        assertEquals(3, tree.lookup("park"));
+
+        // the payload is written with the edges, in every format, and survives reading and mapping
+        for (LetterTree.Format format : LetterTree.Format.values()) {
+            LetterTree t = LetterTree.buildDAG(trie, format).withPayload(new byte[] { 7, 0, 9 });
+            for (LetterTree t2 : roundTrips(t)) {
+                assertEquals(7, t2.getPayload(t2.getOrdinal("park")));
+                assertEquals(9, t2.getPayload(t2.getOrdinal("party")));
+                assertEquals(1, t2.lookup("parking"));
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        byte[] bytes = toBytes(LetterTree.buildDAG(trie).withPayload(new byte[] { 7, 0, 9 }));
+        // cut into the payload, its length, the ranks and the edges
+        for (int cut : new int[] { 1, 3, 5, 12, bytes.length / 2 }) {
+            byte[] truncated = Arrays.copyOf(bytes, bytes.length - cut);
+            try {
+                LetterTree.read(new DataInputStream(new ByteArrayInputStream(truncated)));
+                fail("read a file missing " + cut + " bytes");
+            } catch (IOException e) {
+                // expected
+            }
+            File binFile = File.createTempFile("letter-tree", ".bin");
+            binFile.deleteOnExit();
+            Files.write(binFile.toPath(), truncated);
+            try {
+                LetterTree.map(binFile);
+                fail("mapped a file missing " + cut + " bytes");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPayloadMustCoverEveryWord() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("park\nparking\nparty"));
+        LetterTree.buildDAG(trie).withPayload(new byte[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBitmapFormatRejectsNonLetters() throws IOException {
+        DynamicLetterTrie trie = new DynamicLetterTrie();
+        trie.add(new StringReader("don't"));
+        LetterTree.buildDAG(trie, LetterTree.Format.BITMAP);
+    }
+
+    private static void assertEncyclical(LetterTree tree) {
+        assertEquals(3, tree.lookup("encyclical"));
+        assertEquals(2, tree.lookup("encycli"));
+        assertEquals(0, tree.lookup("encyclion"));
+        assertEquals(0, tree.lookup("gama"));
+    }
+
+    private static byte[] toBytes(LetterTree tree) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        tree.write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the tree to a file through a channel, checks that a stream gets the same bytes, and
+     * loads it back in both ways, checking that the copies keep the tree's format, size and payload.
+     * @return the tree read from the bytes, and the tree mapped from the file
+     */
+    private static LetterTree[] roundTrips(LetterTree tree) throws IOException {
+        File binFile = File.createTempFile("letter-tree", ".bin");
+        binFile.deleteOnExit();
+        FileChannel channel = new FileOutputStream(binFile).getChannel();
+        tree.write(channel);
+        channel.close();
+        byte[] bytes = toBytes(tree);
+        assertArrayEquals(bytes, Files.readAllBytes(binFile.toPath()));
+        LetterTree[] copies = {
+                LetterTree.read(new DataInputStream(new ByteArrayInputStream(bytes))),
+                LetterTree.map(binFile)
+        };
+        for (LetterTree copy : copies) {
+            assertEquals(tree.getFormat(), copy.getFormat());
+            assertEquals(tree.hasQuSymbol(), copy.hasQuSymbol());
+            assertEquals(tree.getNodeCount(), copy.getNodeCount());
+            assertEquals(tree.getWordCount(), copy.getWordCount());
+            assertEquals(tree.hasPayload(), copy.hasPayload());
+        }
+        return copies;
+    }
+
+    private static LetterTree readTree(LetterTree.Format format) throws IOException {
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(new File(getWordFilePath())));
+        DynamicLetterTrie dlt = new DynamicLetterTrie();
+        dlt.add(reader);
+        reader.close();
+        return LetterTree.buildDAG(dlt, format);
+    }
+
+    static List<String> readWords() throws IOException {
+        return Files.readAllLines(new File(getWordFilePath()).toPath(), Charset.forName("UTF-8"));
+    }
+}